@@ -1,11 +1,16 @@
 package com.dpgil.pathlinker.path_linker.internal;
 
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesListener;
 import org.cytoscape.model.events.ColumnCreatedListener;
 import org.cytoscape.model.events.ColumnDeletedListener;
 import org.cytoscape.model.events.ColumnNameChangedListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
 import org.cytoscape.model.events.NetworkAddedListener;
 import org.cytoscape.model.events.NetworkDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesListener;
 import org.cytoscape.model.events.RowsSetListener;
 
 import java.util.Properties;
@@ -22,8 +27,10 @@ import org.osgi.framework.BundleContext;
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerColumnUpdateListener;
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerNetworkEventListener;
 import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerNodeSelectionListener;
+import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerSnapshotCacheListener;
 import com.dpgil.pathlinker.path_linker.internal.rest.PathLinkerImpl;
 import com.dpgil.pathlinker.path_linker.internal.rest.PathLinkerResource;
+import com.dpgil.pathlinker.path_linker.internal.util.PreparedNetwork;
 import com.dpgil.pathlinker.path_linker.internal.view.PathLinkerControlPanel;
 
 /**
@@ -43,6 +50,7 @@ public class CyActivator extends AbstractCyActivator
     private PathLinkerNodeSelectionListener nodeViewEventListener;
     private PathLinkerColumnUpdateListener columnUpdateListener;
     private PathLinkerNetworkEventListener networkEventListener;
+    private PathLinkerSnapshotCacheListener snapshotCacheListener;
 
     private CyApplicationManager cyApplicationManager;
     private CyServiceRegistrar serviceRegistrar;
@@ -75,6 +83,10 @@ public class CyActivator extends AbstractCyActivator
         nodeViewEventListener = new PathLinkerNodeSelectionListener(controlPanel, cyApplicationManager);
         columnUpdateListener = new PathLinkerColumnUpdateListener(controlPanel);
         networkEventListener = new PathLinkerNetworkEventListener(controlPanel);
+        snapshotCacheListener = new PathLinkerSnapshotCacheListener();
+
+        // sizes the cache of prepared networks from the Cytoscape properties
+        PreparedNetwork.configureCacheSize(adapter.getCoreProperties().getProperties());
 
         // register control panel
         registerService(context, controlPanel, CytoPanelComponent.class, new Properties());
@@ -123,6 +135,16 @@ public class CyActivator extends AbstractCyActivator
         registerService(context, networkEventListener, NetworkAddedListener.class, new Properties());
         registerService(context, networkEventListener, NetworkDestroyedListener.class, new Properties());
 
+        // handle events that make the cached prepared networks out of date
+        registerService(context, snapshotCacheListener, AddedNodesListener.class, new Properties());
+        registerService(context, snapshotCacheListener, RemovedNodesListener.class, new Properties());
+        registerService(context, snapshotCacheListener, AddedEdgesListener.class, new Properties());
+        registerService(context, snapshotCacheListener, RemovedEdgesListener.class, new Properties());
+        registerService(context, snapshotCacheListener, RowsSetListener.class, new Properties());
+        registerService(context, snapshotCacheListener, ColumnDeletedListener.class, new Properties());
+        registerService(context, snapshotCacheListener, ColumnNameChangedListener.class, new Properties());
+        registerService(context, snapshotCacheListener, NetworkAboutToBeDestroyedListener.class, new Properties());
+
         // register CyRest service
         registerService(context, cyRestClient, PathLinkerResource.class, new Properties());
     }
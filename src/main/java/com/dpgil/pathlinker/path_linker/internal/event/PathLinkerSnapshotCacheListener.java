@@ -0,0 +1,75 @@
+package com.dpgil.pathlinker.path_linker.internal.event;
+
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.AddedNodesListener;
+import org.cytoscape.model.events.ColumnDeletedEvent;
+import org.cytoscape.model.events.ColumnDeletedListener;
+import org.cytoscape.model.events.ColumnNameChangedEvent;
+import org.cytoscape.model.events.ColumnNameChangedListener;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedEdgesListener;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RemovedNodesListener;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.model.events.RowsSetListener;
+
+import com.dpgil.pathlinker.path_linker.internal.util.PreparedNetwork;
+
+/**
+ * Listener class for the cache of prepared networks
+ * Removes the prepared networks of a network when its nodes or edges change or it is destroyed,
+ *      and the prepared networks read from a node name or edge weight column when the column changes
+ */
+public class PathLinkerSnapshotCacheListener implements AddedNodesListener, RemovedNodesListener,
+AddedEdgesListener, RemovedEdgesListener, RowsSetListener, ColumnDeletedListener,
+ColumnNameChangedListener, NetworkAboutToBeDestroyedListener {
+
+    @Override
+    public void handleEvent(AddedNodesEvent e) {
+        PreparedNetwork.invalidateNetwork(e.getSource().getSUID());
+    }
+
+    @Override
+    public void handleEvent(RemovedNodesEvent e) {
+        PreparedNetwork.invalidateNetwork(e.getSource().getSUID());
+    }
+
+    @Override
+    public void handleEvent(AddedEdgesEvent e) {
+        PreparedNetwork.invalidateNetwork(e.getSource().getSUID());
+    }
+
+    @Override
+    public void handleEvent(RemovedEdgesEvent e) {
+        PreparedNetwork.invalidateNetwork(e.getSource().getSUID());
+    }
+
+    @Override
+    public void handleEvent(RowsSetEvent e) {
+        // only the node names and the edge weight columns networks were prepared from
+        // matter, any other change is ignored
+        for (String column : PreparedNetwork.getWatchedColumns()) {
+            if (e.containsColumn(column))
+                PreparedNetwork.invalidateColumn(column);
+        }
+    }
+
+    @Override
+    public void handleEvent(ColumnDeletedEvent e) {
+        PreparedNetwork.invalidateColumn(e.getColumnName());
+    }
+
+    @Override
+    public void handleEvent(ColumnNameChangedEvent e) {
+        PreparedNetwork.invalidateColumn(e.getOldColumnName());
+    }
+
+    @Override
+    public void handleEvent(NetworkAboutToBeDestroyedEvent e) {
+        PreparedNetwork.invalidateNetwork(e.getNetwork().getSUID());
+    }
+}
@@ -1,28 +1,38 @@
 package com.dpgil.pathlinker.path_linker.internal.model;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
-import org.cytoscape.model.subnetwork.CyRootNetwork;
-import org.cytoscape.model.subnetwork.CySubNetwork;
 
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms;
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightLoader;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.GraphSnapshot;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPContext;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPIterator;
+import com.dpgil.pathlinker.path_linker.internal.util.LazyYenKSP;
+import com.dpgil.pathlinker.path_linker.internal.util.MultiEdgeMerger;
+import com.dpgil.pathlinker.path_linker.internal.util.PreparedNetwork;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
 /** Back end model for the PathLinker plugin */
 public class PathLinkerModel {
 	/** The original network selected by the user */
 	private CyNetwork originalNetwork;
-	/** The network to perform the algorithm on */
-	private CyNetwork network;
+	/** The nodes of the network to perform the algorithm on, the edges refer to their positions */
+	private List<CyNode> nodes;
+	/** The position of each node in the node list */
+	private Map<CyNode, Integer> nodeIndices;
 	/** A mapping of the node object to its name*/
 	private Map<CyNode, String> cyNodeToId;
 	/** Whether or not to created a bi-directed copy of the network and run PathLinker on that */
@@ -47,16 +57,18 @@ public class PathLinkerModel {
 	private Double edgePenalty;
 	/** Perform algo unweighted, weighted (probs), or weighted (p-values) */
 	private EdgeWeightType edgeWeightType;
+	/** The edges of the original network, in the order of tableWeights */
+	private List<CyEdge> edgeList;
+	/** Weight of each edge of the original network read from the edge weight column, null until read */
+	private double[] tableWeights;
+	/** The cached network to run ksp on found by PathLinkerModelParams.validate, null to look it up in runKSP */
+	private PreparedNetwork validatedPrepared;
+	/** The cache generation taken before PathLinkerModelParams.validate read the network, null if it didn't */
+	private Long preparationStartedAt;
 	/** Weight of edges to be used by the algorithm */
-	private Map<CyEdge, Double> edgeWeights;
+	private double[] edgeWeights;
 	/** Edges that we hide from the algorithm */
-	private Set<CyEdge> hiddenEdges;
-	/** The super source to call ksp with and removed after the algorithm */
-	private CyNode superSource;
-	/** The super target to call ksp with and removed after the algorithm */
-	private CyNode superTarget;
-	/** The edges attached to super(source/target) to be removed after ksp */
-	private Set<CyEdge> superEdges;
+	private BitSet hiddenEdges;
 	/** Number of shared nodes between sources and targets */
 	private int commonSourcesTargets;
 	/** Whether or not to include more than k paths if the path length/score is equal to the kth path's */
@@ -67,6 +79,42 @@ public class PathLinkerModel {
 	private Set<CyNode> subgraphTargets;
 	/** The path result produced by the ksp algorithm */
 	private ArrayList<PathWay> result;
+	/** Whether or not to compute the spur paths of each ksp iteration in parallel */
+	private boolean parallelSpurSearch = false;
+	/** Whether or not to run the bidirectional A* search in spur searches */
+	private boolean bidirectionalSpurSearch = false;
+	/** The k shortest paths algorithm to run, YEN or its lazy variant LAZY_YEN */
+	private KSPAlgorithm kspAlgorithm = KSPAlgorithm.YEN;
+	/** whether the k shortest paths algorithm bounds the distances to the targets with the network's landmark index */
+	private boolean landmarkHeuristic = false;
+	/** The listener notified of every path found, null if none */
+	private ProgressListener progressListener;
+	/** Whether or not the run was cancelled */
+	private volatile boolean cancelled = false;
+	/** The state of the running ksp algorithm, null when it is not running */
+	private volatile KSPContext runContext;
+	/** The maximum running time of the ksp algorithm in milliseconds, null for no limit */
+	private Long maxRuntimeMs;
+	/** The maximum number of candidate paths the ksp algorithm keeps, null for no limit */
+	private Integer maxCandidatePaths;
+	/** The maximum estimated bytes of the candidate paths the ksp algorithm keeps, null for no limit */
+	private Long maxCandidateBytes;
+	/** Whether or not the ksp algorithm stopped at a limit before finding all paths */
+	private boolean truncated = false;
+
+	/**
+	 * Listener of the progress of the ksp algorithm
+	 *     called on the thread running the algorithm every time a path is found
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * Called after each path the algorithm accepts
+		 * @param pathCount      the number of paths found so far
+		 * @param candidateCount the number of candidate paths the algorithm currently keeps
+		 */
+		void pathFound(int pathCount, int candidateCount);
+	}
 
 	/**
 	 * Constructor of the model
@@ -137,6 +185,167 @@ public class PathLinkerModel {
 	    return this.result;
 	}
 
+	/**
+	 * Getter method of the parallel spur search option
+	 * @return true if the spur paths are computed in parallel, otherwise false
+	 */
+	public boolean isParallelSpurSearch() {
+	    return this.parallelSpurSearch;
+	}
+
+	/**
+	 * Setter method of the parallel spur search option
+	 *     the result is the same whether the spur paths are computed in parallel or not
+	 * @param parallelSpurSearch true to compute the spur paths on the common fork-join pool
+	 */
+	public void setParallelSpurSearch(boolean parallelSpurSearch) {
+	    this.parallelSpurSearch = parallelSpurSearch;
+	}
+
+	/**
+	 * Getter method of the bidirectional spur search option
+	 * @return true if spur searches run the bidirectional A* search, otherwise false
+	 */
+	public boolean isBidirectionalSpurSearch() {
+	    return this.bidirectionalSpurSearch;
+	}
+
+	/**
+	 * Setter method of the bidirectional spur search option
+	 *     both searches find paths of the same weight, but may pick different paths among equal ones
+	 * @param bidirectionalSpurSearch true to run the bidirectional A* search in spur searches
+	 */
+	public void setBidirectionalSpurSearch(boolean bidirectionalSpurSearch) {
+	    this.bidirectionalSpurSearch = bidirectionalSpurSearch;
+	}
+
+	/**
+	 * Getter method of the k shortest paths algorithm
+	 * @return the algorithm used to compute the paths
+	 */
+	public KSPAlgorithm getKspAlgorithm() {
+	    return this.kspAlgorithm;
+	}
+
+	/**
+	 * Setter method of the k shortest paths algorithm
+	 * @param kspAlgorithm the algorithm used to compute the paths, Yen's algorithm if null
+	 */
+	public void setKspAlgorithm(KSPAlgorithm kspAlgorithm) {
+	    this.kspAlgorithm = kspAlgorithm != null ? kspAlgorithm : KSPAlgorithm.YEN;
+	}
+
+	/**
+	 * Getter method of the landmark heuristic option
+	 * @return true if the landmark index of the network bounds the distances to the targets, otherwise false
+	 */
+	public boolean isLandmarkHeuristic() {
+	    return this.landmarkHeuristic;
+	}
+
+	/**
+	 * Setter method of the landmark heuristic option
+	 *     the index is built on the first run and reused by later runs on the same network and weights
+	 * @param landmarkHeuristic true to bound the distances to the targets with the network's landmark index
+	 */
+	public void setLandmarkHeuristic(boolean landmarkHeuristic) {
+	    this.landmarkHeuristic = landmarkHeuristic;
+	}
+
+	/**
+	 * Setter method of the progress listener
+	 * @param progressListener the listener notified of every path found, null for none
+	 */
+	public void setProgressListener(ProgressListener progressListener) {
+	    this.progressListener = progressListener;
+	}
+
+	/**
+	 * Setter method of the runtime limit
+	 * @param maxRuntimeMs the maximum running time of the ksp algorithm in milliseconds, null for no limit
+	 */
+	public void setMaxRuntimeMs(Long maxRuntimeMs) {
+	    this.maxRuntimeMs = maxRuntimeMs;
+	}
+
+	/**
+	 * Setter method of the candidate path limit
+	 * @param maxCandidatePaths the maximum number of candidate paths the ksp algorithm keeps, null for no limit
+	 */
+	public void setMaxCandidatePaths(Integer maxCandidatePaths) {
+	    this.maxCandidatePaths = maxCandidatePaths;
+	}
+
+	/**
+	 * Setter method of the candidate memory limit
+	 *     the bytes are an estimate of 96 per candidate path plus 12 per node of the candidate paths,
+	 *     not the measured heap, see KSPContext.estimateCandidateBytes
+	 * @param maxCandidateBytes the maximum estimated bytes of the candidate paths the ksp algorithm keeps, null for no limit
+	 */
+	public void setMaxCandidateBytes(Long maxCandidateBytes) {
+	    this.maxCandidateBytes = maxCandidateBytes;
+	}
+
+	/**
+	 * Setter method of the original network as read by PathLinkerModelParams.validate
+	 *     runKSP builds the network to perform the algorithm on from these instead of
+	 *     reading the original network again, so it must not change in between
+	 * @param nodes        the nodes of the original network
+	 * @param nodeIndices  the position of each node in the node list
+	 * @param edgeList     the edges of the original network
+	 * @param tableWeights the weight of each edge read from the edge weight column,
+	 *                     null to read them in runKSP
+	 */
+	public void setValidatedNetwork(List<CyNode> nodes, Map<CyNode, Integer> nodeIndices,
+	        List<CyEdge> edgeList, double[] tableWeights) {
+	    this.nodes = nodes;
+	    this.nodeIndices = nodeIndices;
+	    this.edgeList = edgeList;
+	    this.tableWeights = tableWeights;
+	}
+
+	/**
+	 * Setter method of the cache lookup done by PathLinkerModelParams.validate
+	 *     the network is looked up before it is read, and a network prepared from
+	 *     the reads of the validation is cached with the generation taken before them
+	 * @param prepared             the cached network found by the validation, null if it read the network
+	 * @param preparationStartedAt the cache generation taken before the validation read the network,
+	 *                             null if it didn't read it
+	 */
+	public void setPreparedNetwork(PreparedNetwork prepared, Long preparationStartedAt) {
+	    this.validatedPrepared = prepared;
+	    this.preparationStartedAt = preparationStartedAt;
+	}
+
+	/**
+	 * Check if the ksp algorithm stopped at a runtime, candidate or heap limit
+	 *     the result then holds the shortest paths found before the limit
+	 * @return true if the result was truncated, otherwise false
+	 */
+	public boolean isTruncated() {
+	    return this.truncated;
+	}
+
+	/**
+	 * Cancels the run, the ksp algorithm stops before its next spur search
+	 *     and the run ends without any path. Can be called from any thread
+	 */
+	public void cancel() {
+	    cancelled = true;
+
+	    KSPContext context = runContext;
+	    if (context != null)
+	        context.cancel();
+	}
+
+	/**
+	 * Check if the run was cancelled
+	 * @return true if the run was cancelled, otherwise false
+	 */
+	public boolean isCancelled() {
+	    return this.cancelled;
+	}
+
 	/**
 	 * Runs all the necessary algorithms to calculate kth shortest path
 	 * If path exists, selects corresponding nodes and edges in the network
@@ -147,28 +356,117 @@ public class PathLinkerModel {
 		// this is for a temporary hack
 		setCommonSourcesTargets();
 
-		// creates a copy of the original network which is modified to run PathLinker
-		// 1. undirected edges are converted to bidirectional edges
-		// 2. the weight of multiple source-target edges are averaged because
-		// PathLinker does not support multi-graphs
-		initializeNetwork();
+		// the settings the network PathLinker runs on depends on
+		Object networkKey = PreparedNetwork.cacheKey(originalNetwork, edgeWeightType,
+		        edgeWeightColumnName, edgePenalty, treatNetworkAsUndirected);
+
+		// reuses the network PathLinker runs on from an earlier run on the same
+		// network and settings, as it doesn't depend on the sources and targets.
+		// the validation looks it up itself before it reads the network
+		PreparedNetwork prepared = validatedPrepared;
+		if (prepared == null && preparationStartedAt == null)
+			prepared = PreparedNetwork.getCached(networkKey, originalNetwork);
+
+		if (prepared == null) {
+			// the generation is taken before the network is read, so the network
+			// is not cached if it changes while it is read
+			long startedAt = preparationStartedAt != null ? preparationStartedAt
+			        : PreparedNetwork.startPreparation(edgeWeightType != EdgeWeightType.UNWEIGHTED
+			                ? edgeWeightColumnName : null);
+
+			// creates the edges of the network PathLinker runs on from the original network
+			// in a single pass over its edges
+			// 1. undirected edges are converted to bidirectional edges
+			// 2. the weight of multiple source-target edges are averaged because
+			// PathLinker does not support multi-graphs
+			// 3. the edge weights to be used in the algorithm are computed
+			prepared = initializeNetwork();
+			PreparedNetwork.cache(networkKey, prepared, startedAt);
+		}
 
 		// "removes" the edges that are incoming to source nodes and outgoing
 		// from target nodes
-		initializeHiddenEdges();
-
-		// set the edge weights of the new network to be used in the algorithm.
-		// doesn't actually set the values as edge attributes 
-		// because that dominates runtime.
-		setEdgeWeights();
+		initializeHiddenEdges(prepared);
+
+		// takes a read-only snapshot of the network and its edge weights
+		// so the algorithm doesn't query the network while searching.
+		// the snapshot adds a virtual superSource and superTarget attached
+		// to the sources and targets, respectively, so the network is not modified
+		GraphSnapshot graph = new GraphSnapshot(prepared.getNodes(), prepared.getEdgeSources(),
+		        prepared.getEdgeTargets(), edgeWeights, sourcesList, targetsList);
+		int superSource = graph.getSuperSourceId();
+		int superTarget = graph.getSuperTargetId();
+
+		// all the mutable state of the algorithm lives in a context local
+		// to this run, so concurrent runs don't interfere with each other
+		KSPContext context = new KSPContext(graph, cyNodeToId, hiddenEdges);
+		if (parallelSpurSearch)
+			context.setSpurSearchPool(ForkJoinPool.commonPool());
+		context.setBidirectionalSpurSearch(bidirectionalSpurSearch);
+
+		// publishes the context so cancel can reach the running algorithm,
+		// and passes on a cancellation that came first
+		runContext = context;
+		if (cancelled)
+			context.cancel();
+
+		// the runtime limit cancels the context from within the algorithm,
+		// so it also stops a long iteration between two paths
+		if (maxRuntimeMs != null)
+			context.setDeadline(System.nanoTime() + maxRuntimeMs * 1000000L);
+
+		// the candidate limits are checked by the algorithm each time its
+		// candidates grow, and stop the run like the runtime limit
+		context.setCandidateLimits(maxCandidatePaths, maxCandidateBytes);
+
+		// reuses the landmark index of the network across runs with different
+		// sources and targets. the index is built on the weights of the prepared
+		// network, which don't depend on the sources and targets
+		if (landmarkHeuristic)
+			context.setLandmarkIndex(prepared.getLandmarkIndex());
+
+		// reuses the distances to the targets computed by an earlier run on the
+		// same network and targets, whatever its sources. the heuristic follows
+		// the hidden edges with their prepared weights, so it doesn't depend on
+		// the sources
+		BitSet targetSet = new BitSet(prepared.getNodes().size());
+		for (CyNode target : targetsList)
+			targetSet.set(prepared.getNodeIndices().get(target));
+
+		context.setTargetDistances(prepared.getTargetDistances(targetSet));
+
+		// runs the KSP algorithm, each path is computed when the iterator
+		// is advanced, in the order the algorithm accepts them
+		KSPIterator paths;
+		if (kspAlgorithm == KSPAlgorithm.LAZY_YEN)
+			paths = LazyYenKSP.kspIterator(context, superSource, superTarget,
+			        inputK + commonSourcesTargets, includePathScoreTies);
+		else
+			paths = Algorithms.kspIterator(context, superSource, superTarget,
+			        inputK + commonSourcesTargets, includePathScoreTies);
+
+		result = new ArrayList<PathWay>();
+		while (paths.hasNext()) {
+			result.add(paths.next());
+
+			// the paths of length 0 discarded below are not counted
+			if (progressListener != null)
+				progressListener.pathFound(Math.max(result.size() - commonSourcesTargets, 0),
+				        paths.getCandidateCount());
+		}
+		runContext = null;
 
-		// adds a superSource and superTarget and attaches them to the sources
-		// and targets, respectively
-		addSuperNodes();
+		// a cancelled run ends without any path and selects nothing
+		if (cancelled) {
+			result.clear();
+			outputK = 0;
+			return;
+		}
 
-		// runs the KSP algorithm
-		result = Algorithms.ksp(network, cyNodeToId, superSource, superTarget, 
-		        inputK + commonSourcesTargets, includePathScoreTies);
+		// the context is only stopped by the model, the runtime limit or the
+		// candidate limits
+		if (context.wasStopped())
+			truncated = true;
 
 		// discard first _commonSourcesTargets paths
 		// this is for a temporary hack: when there are n nodes that are both
@@ -176,8 +474,8 @@ public class PathLinkerModel {
 		// the algorithm will generate paths of length 0 from superSource ->
 		// node -> superTarget
 		// we don't want these, so we generate k + n paths and discard those n
-		// paths
-		result.subList(0, commonSourcesTargets).clear();
+		// paths. a truncated run may stop before finding all of them
+		result.subList(0, Math.min(commonSourcesTargets, result.size())).clear();
 
 		// sort the result paths in alphabetical order if weight is same
 		Algorithms.sortResult(result);
@@ -210,209 +508,127 @@ public class PathLinkerModel {
 	}
 
 	/**
-	 * Creates a copy of the original network to run ksp 
+	 * Creates the edges of the network to run ksp from the original network
 	 * with the following modifications:
 	 * 1. undirected edges are converted to bidirectional edges.  
 	 * 2. treats multiple edges as one edge with a weight of the average of the
 	 * multiple edges. This is done because pathlinker is not compatible with
 	 * multigraphs.
+	 * Reuses the nodes, edges and edge weights read by the validation if they
+	 * were given, so the original network is only read once per run
+	 * @return the network to run ksp, with the edge weights to be used in the algorithm
 	 */
-	private void initializeNetwork() {
-		// Originally I had created a text version of each edge and stored and checked 
-		// for the text version in the hiddenEdges set, but retrieving both directed 
-		// and undirected edges was dominating the run time. Thus here we 
-		// create a new network to which we will copy the original nodes and edges 
-		// with undirected edges converted to two directed edges
-		CyRootNetwork root = ((CySubNetwork) originalNetwork).getRootNetwork();
-		// create a subnetwork of the original network without any of the original edges
-		network = root.addSubNetwork(root.getNodeList(), null);
-		// create a subnetwork rather than a new private network so the nodes will be the same.
-		// this way the source and target node lists will still work with the new network
-		//_network = _networkFactory.createNetworkWithPrivateTables();
-
-		// maps each source-target SUID string to its corresponding CyEdge in the 
-		// newly created network. Used to keep track of which edges in the original 
-		// network match the newly created edge 
-		HashMap<String, CyEdge> sourcetargetToEdge = new HashMap<String, CyEdge>();
-		// maps a source-target pair to all the weights of the edges connecting the same
-		// source/target pair in the original network 
-		// so we can go through afterwards and remove the extra edges
-		HashMap<String, List<Double>> edgeMultiWeights = new HashMap<String, List<Double>>(); 
-
-		// copy all of the edges of the original network to this network
-		// convert undirected edges to bidirectional edges
-		for (CyEdge e : originalNetwork.getEdgeList()) {
-
-			CyNode source = e.getSource();
-			CyNode target = e.getTarget();
-
-			// a hack for unweighted edge to avoid calling getNetworkTableWeight
-			// should be edit in the future to avoid constant checks
-			Double w = edgeWeightType == EdgeWeightType.UNWEIGHTED ? 1 : getNetworkTableWeight(e);
-
-			// check if this source-target was already added as an edge. If it was, keep track of the 
-			// multiple weights. If not, add it as a new edge
-			checkAddEdge(sourcetargetToEdge, edgeMultiWeights, source, target, w);
-			// also add the reverse direction if the original edge was undirected
-            // or if the treatNetworkAsUndirected option is checked
-			if (!e.isDirected() || treatNetworkAsUndirected)
-				checkAddEdge(sourcetargetToEdge, edgeMultiWeights, target, source, w);
+	private PreparedNetwork initializeNetwork() {
+		// The network PathLinker runs on only lives in the arrays the GraphSnapshot
+		// is built from. Earlier versions copied the original network into a new
+		// subnetwork of the root network on every run, which was never removed and
+		// grew the session with each run, so no Cytoscape network is created here
+		if (nodes == null || nodeIndices == null) {
+			nodes = originalNetwork.getNodeList();
+			nodeIndices = new HashMap<CyNode, Integer>(nodes.size() * 2);
+			for (int i = 0; i < nodes.size(); i++)
+				nodeIndices.put(nodes.get(i), i);
 		}
 
-		edgeWeights = new HashMap<CyEdge, Double>();
-
-		// now set the edge weight of each of the edges in the newly created network
-		// if there were any multi-edges, then average the weights
-		for (String sourcetarget : sourcetargetToEdge.keySet()){
+		if (edgeList == null)
+			edgeList = originalNetwork.getEdgeList();
 
-			List<Double> weights = edgeMultiWeights.get(sourcetarget);
-			// the final weight of this edge
-			Double edgeWeight = weights.get(0);
+		// reads the whole edge weight column at once rather than the row of each edge,
+		// unweighted runs don't read the column at all
+		boolean weighted = edgeWeightType != EdgeWeightType.UNWEIGHTED;
+		if (weighted && tableWeights == null)
+			tableWeights = EdgeWeightLoader.load(originalNetwork, edgeList, edgeWeightColumnName).getWeights();
 
-			// if there are more than 1 weights for this edge, then average them together
-			if (weights.size() > 1){
-				Double sum = 0.0;
-				for (Double w : weights){
-					sum += w;
-				}
-				// divide the sum by the total number of weights to get the average
-				edgeWeight = sum / weights.size();
-			}
+		// merges the edges connecting the same source and target, keyed by the
+		// packed positions of their nodes. each original edge gives at most two
+		// directed edges
+		MultiEdgeMerger merger = new MultiEdgeMerger(edgeList.size() * 2);
 
-			edgeWeights.put(sourcetargetToEdge.get(sourcetarget), edgeWeight);
-		}
-	}
-
-	/**
-	 * Initializes the edges that we are hiding from the algorithm. Doesn't
-	 * actually remove the edges as that dominates runtime.
-	 */
-	private void initializeHiddenEdges() {
-		hiddenEdges = new HashSet<CyEdge>();
-
-		// only if we don't allow sources and targets internal to paths
-		if (!allowSourcesTargetsInPaths) {
-			// hides all incoming directed edges to source nodes
-			for (CyNode source : sourcesList) {
-				hiddenEdges.addAll(network.getAdjacentEdgeList(source, CyEdge.Type.INCOMING));
-			}
-			// hides all outgoing directed edges from target nodes
-			for (CyNode target : targetsList) {
-				hiddenEdges.addAll(network.getAdjacentEdgeList(target, CyEdge.Type.OUTGOING));
-			}
-		}
-
-		Algorithms.initializeHiddenEdges(hiddenEdges);
-	}
+		// copy all of the edges of the original network
+		// convert undirected edges to bidirectional edges
+		for (int i = 0; i < edgeList.size(); i++) {
 
-	/**
-	 * Sets the edge weights to be used in the algorithm. Doesn't actually set
-	 * the weights as attributes because that dominates runtime.
-	 */
-	private void setEdgeWeights() {
+			CyEdge e = edgeList.get(i);
+			int source = nodeIndices.get(e.getSource());
+			int target = nodeIndices.get(e.getTarget());
 
-		if (edgeWeightType == EdgeWeightType.UNWEIGHTED){
-			for (CyEdge edge : network.getEdgeList()) {
-				edgeWeights.put(edge, 1.);
-			}
-		}
+			double w = weighted ? tableWeights[i] : 1;
 
-		// applies edge penalty and then log transforms the edge weights for the
-		// probability option
-		else if (edgeWeightType == EdgeWeightType.PROBABILITIES) {
-			applyMultiplicativeEdgePenalty(edgePenalty);
-			logTransformEdgeWeights();
+			// if this source-target was already added as an edge, its weight is
+			// added to the weights of that edge. If not, it is added as a new edge
+			merger.addEdge(source, target, w);
+			// also add the reverse direction if the original edge was undirected
+            // or if the treatNetworkAsUndirected option is checked
+			if (!e.isDirected() || treatNetworkAsUndirected)
+				merger.addEdge(target, source, w);
 		}
 
-		// applies edge penalty for the additive option
-		else if (edgeWeightType == EdgeWeightType.ADDITIVE) {
-			applyAdditiveEdgePenalty(edgePenalty);
-		}
+		// if there were any multi-edges, the weight of the edge is the average
+		// of their weights
+		double[] averageWeights = merger.getAverageWeights();
 
-		// sets the weights in the algorithms class
-		Algorithms.setEdgeWeights(edgeWeights);
+		return new PreparedNetwork(originalNetwork, weighted ? edgeWeightColumnName : null,
+		        nodes, nodeIndices, cyNodeToId, merger.getEdgeSources(), merger.getEdgeTargets(),
+		        transformEdgeWeights(averageWeights));
 	}
 
 	/**
-	 * Adds a superSource and superTarget and attaches them to the sources and
-	 * targets, respectively. Sets _superSource, _superTarget, and populates the
-	 * list _superEdges, so they can be removed later.
+	 * Computes the edge weights to be used in the algorithm. Doesn't actually set
+	 * the weights as attributes because that dominates runtime.
+	 * @param averageWeights the average weight of the multiple edges of each edge
+	 * @return the weight of each edge with the edge penalty and log transformation applied
 	 */
-	private void addSuperNodes() {
-		// sets up the super source/super target
-		superSource = network.addNode();
-		superTarget = network.addNode();
-		superEdges = new HashSet<CyEdge>();
-
-		// attaches super source to all sources
-		for (CyNode source : sourcesList) {
-			CyEdge superEdge = network.addEdge(superSource, source, true);
-
-			// sets an edge weight of 0, so the edges connecting the super nodes
-			// and the sources/targets don't affect the final path weights
-			Algorithms.setWeight(superEdge, 0.);
-			superEdges.add(superEdge);
-		}
-		// attaches all targets to super target
-		for (CyNode target : targetsList) {
-			CyEdge superEdge = network.addEdge(target, superTarget, true);
-
-			// sets an edge weight of 0, so the edges connecting the super nodes
-			// and the sources/targets don't affect the final path weights
-			Algorithms.setWeight(superEdge, 0.);
-			superEdges.add(superEdge);
+	private double[] transformEdgeWeights(double[] averageWeights) {
+		double[] weights = averageWeights.clone();
+		if (edgeWeightType == EdgeWeightType.UNWEIGHTED)
+			return weights;
+
+		for (int edge = 0; edge < weights.length; edge++) {
+			// applies edge penalty and then log transforms the edge weights for the
+			// probability option
+			if (edgeWeightType == EdgeWeightType.PROBABILITIES)
+				weights[edge] = logTransformEdgeWeight(applyMultiplicativeEdgePenalty(weights[edge], edgePenalty));
+
+			// applies edge penalty for the additive option
+			else if (edgeWeightType == EdgeWeightType.ADDITIVE)
+				weights[edge] = applyAdditiveEdgePenalty(weights[edge], edgePenalty);
 		}
-	}
-
-	/**
-	 * Gets the edge weight value from the network table. Expensive operation,
-	 * so we try to minimize how often we use this
-	 */
-	private double getNetworkTableWeight(CyEdge e) {
-		// gets the attribute edge weight value
-		Double value = Double.parseDouble((originalNetwork.getRow(e).getRaw(edgeWeightColumnName).toString()));
-		double edge_weight = value != null ? value.doubleValue() : -44444;
 
-		return edge_weight;
+		return weights;
 	}
 
 	/**
-	 * Checks to see if the given source->target edge in the original network was already added 
-	 * to the new network. If it was, then add the weight of the edge to the list of weights 
-	 * for this edge. If it wasn't, then add the edge as a new edge and keep track of it in 
-	 * the HashMap for possible future duplicate edges
-	 * @param sourcetargetToEdge
-	 * 			maps the source-target SUIDs to the edge in the new network
-	 * @param edgeMultiWeights
-	 * 			maps each edge to the list of weights 
-	 * @param source 
-	 * 			source node
-	 * @param target 
-	 * 			target node
-	 * @param w 
-	 * 			edge weight
+	 * Initializes the edges that we are hiding from the algorithm. Doesn't
+	 * actually remove the edges as that dominates runtime.
+	 * Every edge, hidden or not, keeps its weight of the prepared network, so
+	 * the distances computed over all the edges, like the heuristic of Yen's
+	 * algorithm, only depend on the network and the targets. They stay
+	 * admissible, as hiding edges can only lengthen the paths
+	 * @param prepared the network to run ksp
 	 */
-	private void checkAddEdge(HashMap<String, CyEdge> sourcetargetToEdge, 
-			HashMap<String, List<Double>> edgeMultiWeights,
-			CyNode source, CyNode target, Double w){
+	private void initializeHiddenEdges(PreparedNetwork prepared) {
+		int edgeCount = prepared.edgeCount();
+		hiddenEdges = new BitSet(edgeCount);
+		edgeWeights = prepared.getWeights();
 
-		String sourceSUID = source.getSUID().toString();
-		String targetSUID = target.getSUID().toString();
-		String sourcetargetSUID = sourceSUID + "-" + targetSUID;
-		boolean duplicate = sourcetargetToEdge.containsKey(sourcetargetSUID);
+		// only if we don't allow sources and targets internal to paths
+		if (!allowSourcesTargetsInPaths) {
+			Map<CyNode, Integer> indices = prepared.getNodeIndices();
+			BitSet sourceNodes = new BitSet(prepared.getNodes().size());
+			for (CyNode source : sourcesList)
+				sourceNodes.set(indices.get(source));
+			BitSet targetNodes = new BitSet(prepared.getNodes().size());
+			for (CyNode target : targetsList)
+				targetNodes.set(indices.get(target));
 
-		// make sure we aren't adding any duplicate edges to this new network
-		if (!duplicate){
-			// add the first direction of the edge
-			CyEdge newEdge = network.addEdge(source, target, true);
-			sourcetargetToEdge.put(sourcetargetSUID, newEdge);
-			List<Double> weights = new ArrayList<Double>();
-			weights.add(w);
-			edgeMultiWeights.put(sourcetargetSUID, weights);
-		}
-		else{
-			// if the network already contains this edge, then add the extra edge weight to this edge's list of edge weights
-			edgeMultiWeights.get(sourcetargetSUID).add(w);
+			// hides all incoming directed edges to source nodes
+			// and all outgoing directed edges from target nodes
+			int[] edgeSources = prepared.getEdgeSources();
+			int[] edgeTargets = prepared.getEdgeTargets();
+			for (int e = 0; e < edgeCount; e++) {
+				if (sourceNodes.get(edgeTargets[e]) || targetNodes.get(edgeSources[e]))
+					hiddenEdges.set(e);
+			}
 		}
 	}
 
@@ -479,38 +695,29 @@ public class PathLinkerModel {
 	 * outgoing target) are removed, along with probability lost to zero degree
 	 * nodes in the edge flux calculation.
 	 *
+	 * @param edgeWeight
+	 *            the weight of the edge
 	 * @param edgePenalty
 	 *            the penalty to apply to each edge
+	 * @return the penalized weight of the edge
 	 */
-	private void applyMultiplicativeEdgePenalty(double edgePenalty) {
+	private double applyMultiplicativeEdgePenalty(double edgeWeight, double edgePenalty) {
 		if (edgePenalty == 1.0)
-			return;
-
-		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
+			return edgeWeight;
 
-			double edgeWeight = edgeWeights.get(edge);
-			double w = edgeWeight / edgePenalty;
-			edgeWeights.put(edge, w);
-		}
+		return edgeWeight / edgePenalty;
 	}
 
 	/**
-	 * Performs a log transformation on the supplied edges in place given a
-	 * mapping from edges to their initial weights
+	 * Performs a log transformation on the weight of an edge
+	 *
+	 * @param edgeWeight
+	 *            the initial weight of the edge
+	 * @return the log transformed weight of the edge
 	 */
-	private void logTransformEdgeWeights() {
-		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
-
-			double edgeWeight = edgeWeights.get(edge);
-
-			// double w = -1 * Math.log(edge_weight);
-			double w = -1 * Math.log(Math.max(0.000000001, edgeWeight)) / Math.log(10);
-			edgeWeights.put(edge, w);
-		}
+	private double logTransformEdgeWeight(double edgeWeight) {
+		// double w = -1 * Math.log(edge_weight);
+		return -1 * Math.log(Math.max(0.000000001, edgeWeight)) / Math.log(10);
 	}
 
 	/**
@@ -537,20 +744,16 @@ public class PathLinkerModel {
 	 * weight penalizes the score of every path by a factor equal to (the number
 	 * of edges in the path)*(this factor).
 	 *
+	 * @param edgeWeight
+	 *            the weight of the edge
 	 * @param edgePenalty
 	 *            the penalty to apply to each edge
+	 * @return the penalized weight of the edge
 	 */
-	private void applyAdditiveEdgePenalty(double edgePenalty) {
+	private double applyAdditiveEdgePenalty(double edgeWeight, double edgePenalty) {
 		if (edgePenalty == 0)
-			return;
+			return edgeWeight;
 
-		for (CyEdge edge : edgeWeights.keySet()) {
-			if (hiddenEdges.contains(edge))
-				continue;
-
-			double edgeWeight = edgeWeights.get(edge);
-			double w = edgeWeight + edgePenalty;
-			edgeWeights.put(edge, w);
-		}
+		return edgeWeight + edgePenalty;
 	}
 }
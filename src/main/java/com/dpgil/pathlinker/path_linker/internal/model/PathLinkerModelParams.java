@@ -14,8 +14,11 @@ import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
 
+import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightLoader;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
 import com.dpgil.pathlinker.path_linker.internal.util.PathLinkerError;
+import com.dpgil.pathlinker.path_linker.internal.util.PreparedNetwork;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -60,6 +63,44 @@ public class PathLinkerModelParams {
             example = "false", dataType = "boolean")
     public boolean includeTiedPaths = false;
 
+    @ApiModelProperty(value = "The k shortest paths algorithm PathLinker will use. YEN is Yen's algorithm, "
+            + "LAZY_YEN is Yen's algorithm which postpones each deviation until its lower bound "
+            + "is the shortest candidate, skips the ones past the kth path, and resolves most of them along "
+            + "the shortest path tree to the targets without a spur search. It is faster for very large k. "
+            + "Both rank the paths the same way. Default set to YEN",
+            example = "YEN")
+    public KSPAlgorithm kspAlgorithm = KSPAlgorithm.YEN;
+
+    @ApiModelProperty(value = "Bound the distances to the targets with a landmark index of the network, "
+            + "built once per network and edge weight settings and reused by later runs. "
+            + "Used by both YEN and LAZY_YEN. Speeds up repeated runs on the same network with different sources and targets",
+            example = "false", dataType = "boolean")
+    public boolean useLandmarkHeuristic = false;
+
+    @ApiModelProperty(value = "Run each spur search as a bidirectional A* search, from the spur node and from the targets. "
+            + "Finds paths of the same length/score, but may pick a different path among paths of equal length/score",
+            example = "false", dataType = "boolean")
+    public boolean useBidirectionalSpurSearch = false;
+
+    @ApiModelProperty(value = "Compute the spur paths of each iteration of the algorithm in parallel, "
+            + "on the threads shared by Cytoscape. The paths found are the same as with a serial run. Default set to false",
+            example = "false", dataType = "boolean")
+    public boolean useParallelSpurSearch = false;
+
+    @ApiModelProperty(value = "Stop the algorithm after this many milliseconds and return the paths found so far. "
+            + "Default = no limit", example = "60000")
+    public Long maxRuntimeMs = null;
+
+    @ApiModelProperty(value = "Stop the algorithm once it keeps more than this many candidate paths "
+            + "and return the paths found so far. Default = no limit", example = "1000000")
+    public Integer maxCandidatePaths = null;
+
+    @ApiModelProperty(value = "Stop the algorithm once the candidate paths it keeps are estimated to take more than "
+            + "this many bytes, and return the paths found so far. The estimate is 96 bytes per candidate path "
+            + "plus 12 bytes per node of the candidate paths, not the measured heap. Default = no limit",
+            example = "2000000000")
+    public Long maxCandidateBytes = null;
+
     @ApiModelProperty(value = "Skip the generation of the subnetwork/subnetwork view, the path rank column, "
             + "and the result panel in Cytoscape", 
             example = "false", dataType = "boolean")
@@ -69,6 +110,20 @@ public class PathLinkerModelParams {
     private Map<String, CyNode> idToCyNode;
     /** A mapping of the node object to its name*/
     private Map<CyNode, String> cyNodeToId;
+    /** the nodes of the network read by the validation */
+    private List<CyNode> nodeList;
+    /** A mapping of the node object to its position in nodeList */
+    private Map<CyNode, Integer> nodeIndices;
+    /** the edges of the network read by the validation */
+    private List<CyEdge> edgeList;
+    /** the weight of each edge in edgeList read by the validation, null for the unweighted option */
+    private double[] edgeWeights;
+    /** the cached network PathLinker runs on found by the validation, null if the validation read the network */
+    private PreparedNetwork preparedNetwork;
+    /** the cache key preparedNetwork was looked up with */
+    private Object preparedNetworkKey;
+    /** the cache generation taken before the validation read the network, null if it didn't read it */
+    private Long preparationStartedAt;
 
     /** list of source names */
     private Set<String> sourceNames;
@@ -99,6 +154,65 @@ public class PathLinkerModelParams {
         return this.cyNodeToId;
     }
 
+    /**
+     * Getter method of nodeList
+     * @return the nodes of the network read by the validation
+     */
+    @ApiModelProperty(hidden = true)
+    public List<CyNode> getNodeList() {
+        return this.nodeList;
+    }
+
+    /**
+     * Getter method of nodeIndices
+     * @return the position of each node in nodeList
+     */
+    @ApiModelProperty(hidden = true)
+    public Map<CyNode, Integer> getNodeIndices() {
+        return this.nodeIndices;
+    }
+
+    /**
+     * Getter method of edgeList
+     * @return the edges of the network read by the validation
+     */
+    @ApiModelProperty(hidden = true)
+    public List<CyEdge> getEdgeList() {
+        return this.edgeList;
+    }
+
+    /**
+     * Getter method of edgeWeights
+     *      the weights are read once by the validation and passed on to the model,
+     *      so a run reads the edge weight column a single time
+     * @return the weight of each edge in edgeList, null for the unweighted option
+     */
+    @ApiModelProperty(hidden = true)
+    public double[] getEdgeWeights() {
+        return this.edgeWeights;
+    }
+
+    /**
+     * Getter method of preparedNetwork
+     *      the cached network is looked up before the network is read, so a cache hit
+     *      skips reading the nodes, their names, the edges and the edge weights
+     * @return the cached network PathLinker runs on, null if the validation read the network
+     */
+    @ApiModelProperty(hidden = true)
+    public PreparedNetwork getPreparedNetwork() {
+        return this.preparedNetwork;
+    }
+
+    /**
+     * Getter method of preparationStartedAt
+     * @return the cache generation taken before the validation read the network,
+     *         null if it didn't read the network
+     */
+    @ApiModelProperty(hidden = true)
+    public Long getPreparationStartedAt() {
+        return this.preparationStartedAt;
+    }
+
     /**
      * Getter method of sourcesList
      * @return sourcesList
@@ -171,6 +285,22 @@ public class PathLinkerModelParams {
             return errorList;
         }
 
+        // looks up the network PathLinker runs on before reading the network, as it
+        // holds the nodes, their names and the edge weights checked by an earlier run.
+        // otherwise takes the cache generation before the network is read, so the
+        // network prepared from these reads isn't cached if it changes meanwhile
+        preparedNetwork = null;
+        preparedNetworkKey = null;
+        preparationStartedAt = null;
+        if (edgeWeightType != null && edgePenalty != null) {
+            preparedNetworkKey = PreparedNetwork.cacheKey(network, edgeWeightType,
+                    edgeWeightColumnName, edgePenalty, treatNetworkAsUndirected);
+            preparedNetwork = PreparedNetwork.getCached(preparedNetworkKey, network);
+        }
+        if (preparedNetwork == null)
+            preparationStartedAt = PreparedNetwork.startPreparation(
+                    edgeWeightType != EdgeWeightType.UNWEIGHTED ? edgeWeightColumnName : null);
+
         // initialize source and target properties for validation
         prepareIdSourceTarget(network);
 
@@ -223,23 +353,28 @@ public class PathLinkerModelParams {
 
         // checks if all the edges in the graph have weights. Skip the check if edge weight type is unweighted
         // Error exists if a weighted option was selected, but not all edges have weights.
+        // the weights are kept for the model, so it doesn't read the column again.
+        // the weights of a cached network were checked by the run that prepared it
         PathLinkerError edgeWeightError = null;
-        if (edgeWeightType != null && edgeWeightType != EdgeWeightType.UNWEIGHTED) {
-            for (CyEdge edge : network.getEdgeList()) {
-                try {
-                    Double.parseDouble(network.getRow(edge).getRaw(edgeWeightColumnName).toString());
-                } catch (NullPointerException  e) {
-                    String errorMsg = "Weighted option is selected, but at least one edge does not have a weight in the selected edge weight column '" + 
-                            edgeWeightColumnName + "'.\nPlease either select the Unweighted option, or ensure all edges have a weight to run PathLinker.\n";
-
-                    edgeWeightError = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
-                            PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
-                            errorMsg.replace("\n", ""), errorMsg);
-
-                    quit = true;
-                    break;
-                }
-            }
+        edgeList = null;
+        edgeWeights = null;
+        EdgeWeightLoader weights = null;
+        if (preparedNetwork == null)
+            edgeList = network.getEdgeList();
+        if (preparedNetwork == null && edgeWeightType != null && edgeWeightType != EdgeWeightType.UNWEIGHTED) {
+            weights = EdgeWeightLoader.load(network, edgeList, edgeWeightColumnName);
+            edgeWeights = weights.getWeights();
+        }
+
+        if (weights != null && weights.hasMissingValues()) {
+            String errorMsg = "Weighted option is selected, but at least one edge does not have a weight in the selected edge weight column '" + 
+                    edgeWeightColumnName + "'.\nPlease either select the Unweighted option, or ensure all edges have a weight to run PathLinker.\n";
+
+            edgeWeightError = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg.replace("\n", ""), errorMsg);
+
+            quit = true;
         }
 
         // validate input k value
@@ -259,6 +394,27 @@ public class PathLinkerModelParams {
             errorList.add(error);
         }
 
+        // check user input for kspAlgorithm
+        if (kspAlgorithm == null) {
+            String errorMsg = "Invalid kspAlgorithm. kspAlgorithm must be YEN or LAZY_YEN";
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, null);
+
+            errorList.add(error);
+        }
+
+        // check user input for the runtime and memory limits
+        if ((maxRuntimeMs != null && maxRuntimeMs < 1) || (maxCandidatePaths != null && maxCandidatePaths < 1)
+                || (maxCandidateBytes != null && maxCandidateBytes < 1)) {
+            String errorMsg = "Invalid limit. maxRuntimeMs, maxCandidatePaths and maxCandidateBytes must be positive when set";
+            PathLinkerError error = new PathLinkerError(PathLinkerError.INVALID_INPUT_CODE, 
+                    PathLinkerError.RESOURCE_ERROR_ROOT + ":" + resourcePath + ":" + PathLinkerError.INVALID_INPUT_ERROR, 
+                    errorMsg, null);
+
+            errorList.add(error);
+        }
+
         // check user input for edgeWeightType
         if (edgeWeightType == null) {
             String errorMsg = "Invalid edgeWeightType. edgeWeightType must be UNWEIGHTED, ADDITIVE, or PROBABILITIES" ;
@@ -347,6 +503,12 @@ public class PathLinkerModelParams {
         if (edgeWeightError != null)
             errorList.add(edgeWeightError);
 
+        // the edge penalty may have been set to its default above, the network found
+        // with the entered penalty is then left for the model to look up again
+        if (preparedNetwork != null && !preparedNetworkKey.equals(PreparedNetwork.cacheKey(network,
+                edgeWeightType, edgeWeightColumnName, edgePenalty, treatNetworkAsUndirected)))
+            preparedNetwork = null;
+
         return errorList;
     }
 
@@ -369,15 +531,29 @@ public class PathLinkerModelParams {
     /**
      * Populates idToCyNode, the map of node names to their objects
      * Populates cyNodeToId, the map of node objects to their names
+     * Populates nodeIndices, the map of node objects to their position in the node list
      */
     private void populateIdCyNodePair(CyNetwork network) {
+        // a cached network already holds the nodes and their names
+        if (preparedNetwork != null) {
+            nodeList = preparedNetwork.getNodes();
+            nodeIndices = preparedNetwork.getNodeIndices();
+            cyNodeToId = preparedNetwork.getCyNodeToId();
+            idToCyNode = preparedNetwork.getIdToCyNode();
+            return;
+        }
+
         idToCyNode = new HashMap<String, CyNode>();
         cyNodeToId = new HashMap<CyNode, String>();
+        nodeList = network.getNodeList();
+        nodeIndices = new HashMap<CyNode, Integer>(nodeList.size() * 2);
 
-        for (CyNode node : network.getNodeList()) {
+        for (int i = 0; i < nodeList.size(); i++) {
+            CyNode node = nodeList.get(i);
             String nodeName = network.getRow(node).get(CyNetwork.NAME, String.class);
             idToCyNode.put(nodeName, node);
             cyNodeToId.put(node, nodeName);
+            nodeIndices.put(node, i);
         }
     }
 
@@ -24,6 +24,8 @@ public class PathLinkerAppResponse {
     private String pathRankColumnName;
     /** List of PathLinkerPath objects */
     private List<Path> paths;
+    /** Whether the algorithm stopped at a limit before finding all paths */
+    private boolean truncated;
 
     /**
      * Getter method of the subnetworkSUID
@@ -93,4 +95,22 @@ public class PathLinkerAppResponse {
     public void setPaths(List<Path> paths) {
         this.paths = paths;
     }
+
+    /**
+     * Getter method of the truncated flag
+     * @return true if the algorithm stopped at a limit before finding all paths, otherwise false
+     */
+    @ApiModelProperty(value = "True if the algorithm stopped at maxRuntimeMs, maxCandidatePaths or maxCandidateBytes, "
+            + "in which case the paths are the shortest paths found before the limit", example = "false")
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Setter method of the truncated flag
+     * @param truncated whether the algorithm stopped at a limit before finding all paths
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
 }
@@ -47,8 +47,6 @@ public class PathLinkerImpl implements PathLinkerResource {
     private CyServiceRegistrar serviceRegistrar;
     /** swing application to set the status of the result panel */
     private CySwingApplication cySwingApp;
-    /** PathLinker Model object to run analysis */
-    private PathLinkerModel pathLinkerModel;
     /** CI Factories for Exceptions */
     private final CIExceptionFactory ciExceptionFactory;
 
@@ -139,10 +137,12 @@ public class PathLinkerImpl implements PathLinkerResource {
         PathLinkerAppResponse response = new PathLinkerAppResponse();
 
         // obtain results from the runKSPTask
-        pathLinkerModel = runKSPTask.getResults(PathLinkerModel.class);
+        // kept local so overlapping requests each work on their own model
+        PathLinkerModel pathLinkerModel = runKSPTask.getResults(PathLinkerModel.class);
 
-        // check for error where no path is found
-        if (pathLinkerModel.getOutputK() == 0) {
+        // check for error where no path is found. a run stopped at a limit
+        // before its first path is not an error, and returns no path as truncated
+        if (pathLinkerModel.getOutputK() == 0 && !pathLinkerModel.isTruncated()) {
             throw ciExceptionFactory.getCIException(PathLinkerError.PATH_NOT_FOUND_CODE, 
                     new CIError[]{new PathLinkerError(PathLinkerError.PATH_NOT_FOUND_CODE, 
                             PathLinkerError.RESOURCE_ERROR_ROOT + ":runPathLinker:" + PathLinkerError.PATH_NOT_FOUND_ERROR, 
@@ -152,8 +152,8 @@ public class PathLinkerImpl implements PathLinkerResource {
 
         List<PathWay> paths = pathLinkerModel.getResult(); // obtain result path
 
-        // only generate subgraph/view if user agrees to
-        if (!modelParams.skipSubnetworkGeneration) {
+        // only generate subgraph/view if user agrees to and there is a path to show
+        if (!modelParams.skipSubnetworkGeneration && !paths.isEmpty()) {
             // construct createKSPViewTask to create KSP subgraph, subgraph view, path rank, and update related properties
             CreateKSPViewTask createKSPViewTask = new CreateKSPViewTask(controlPanel, cyNetwork, pathLinkerModel , adapter, cyApplicationManager);
             synTaskMan.execute(new TaskIterator(createKSPViewTask));
@@ -192,6 +192,7 @@ public class PathLinkerImpl implements PathLinkerResource {
 
         // store results into response
         response.setPaths(result);
+        response.setTruncated(pathLinkerModel.isTruncated());
 
         return Response.status(Response.Status.OK).type(MediaType.APPLICATION_JSON).entity(response).build();
     }
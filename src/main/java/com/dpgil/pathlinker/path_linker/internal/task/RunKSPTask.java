@@ -17,8 +17,8 @@ public class RunKSPTask extends AbstractNetworkTask implements ObservableTask {
     private CyNetwork network;
     /** parameters to create model for running the ksp algorithm */
     private PathLinkerModelParams modelParams;
-    /** the model to run ksp algorithm */
-    private PathLinkerModel pathLinkerModel;
+    /** the model to run ksp algorithm, read by cancel from another thread */
+    private volatile PathLinkerModel pathLinkerModel;
     /** task monitor for the RunKSPTask */
     private TaskMonitor taskMonitor;
 
@@ -81,9 +81,70 @@ public class RunKSPTask extends AbstractNetworkTask implements ObservableTask {
                 modelParams.edgeWeightType, 
                 modelParams.edgePenalty,
                 modelParams.getCyNodeToId());
+        // reuses the network as read by the validation instead of reading it again
+        pathLinkerModel.setValidatedNetwork(
+                modelParams.getNodeList(),
+                modelParams.getNodeIndices(),
+                modelParams.getEdgeList(),
+                modelParams.getEdgeWeights());
+        pathLinkerModel.setPreparedNetwork(
+                modelParams.getPreparedNetwork(),
+                modelParams.getPreparationStartedAt());
+        pathLinkerModel.setKspAlgorithm(modelParams.kspAlgorithm);
+        pathLinkerModel.setLandmarkHeuristic(modelParams.useLandmarkHeuristic);
+        pathLinkerModel.setBidirectionalSpurSearch(modelParams.useBidirectionalSpurSearch);
+        pathLinkerModel.setParallelSpurSearch(modelParams.useParallelSpurSearch);
+        pathLinkerModel.setMaxRuntimeMs(modelParams.maxRuntimeMs);
+        pathLinkerModel.setMaxCandidatePaths(modelParams.maxCandidatePaths);
+        pathLinkerModel.setMaxCandidateBytes(modelParams.maxCandidateBytes);
+        pathLinkerModel.setProgressListener(new PathLinkerModel.ProgressListener() {
+            @Override
+            public void pathFound(int pathCount, int candidateCount) {
+                reportProgress(pathCount, candidateCount);
+            }
+        });
+
+        // passes on a cancellation that came before the model was created
+        if (cancelled)
+            pathLinkerModel.cancel();
 
         // runs the KSP algorithm
         pathLinkerModel.runKSP();
-        taskMonitor.setStatusMessage("Running KSP algorithm success.");
+
+        if (pathLinkerModel.isCancelled())
+            taskMonitor.setStatusMessage("Running KSP algorithm cancelled.");
+        else if (pathLinkerModel.isTruncated())
+            taskMonitor.setStatusMessage("Running KSP algorithm stopped at a limit, "
+                    + pathLinkerModel.getOutputK() + " paths found.");
+        else
+            taskMonitor.setStatusMessage("Running KSP algorithm success.");
+    }
+
+    /**
+     * Reports the number of paths and candidate paths found to the task monitor
+     *      the status message is updated at most once per percent of k,
+     *      so large k runs don't flood the monitor
+     * @param pathCount      the number of paths found so far
+     * @param candidateCount the number of candidate paths the algorithm currently keeps
+     */
+    private void reportProgress(int pathCount, int candidateCount) {
+        int k = modelParams.k;
+        taskMonitor.setProgress(Math.min(1.0, (double) pathCount / k));
+
+        if (pathCount % Math.max(k / 100, 1) == 0 || pathCount >= k)
+            taskMonitor.setStatusMessage("Found " + pathCount + " of " + k + " paths, "
+                    + candidateCount + " candidate paths. Please wait...");
+    }
+
+    /**
+     * Cancels the task, the KSP algorithm stops before its next spur search
+     */
+    @Override
+    public void cancel() {
+        super.cancel();
+
+        PathLinkerModel model = pathLinkerModel;
+        if (model != null)
+            model.cancel();
     }
 }
@@ -1,20 +1,18 @@
 package com.dpgil.pathlinker.path_linker.internal.util;
 
-import java.util.Comparator;
 import java.util.Collections;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import javax.swing.JOptionPane;
-import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNode;
-import org.cytoscape.model.CyNetwork;
 
 /**
  * // -------------------------------------------------------------------------
@@ -26,10 +24,7 @@ import org.cytoscape.model.CyNetwork;
  */
 public class Algorithms
 {
-	private static final double            INFINITY = Integer.MAX_VALUE;
-	private static HashSet<CyEdge>         initialHiddenEdges;
-	private static HashSet<CyEdge>         hiddenEdges;
-	private static Map<CyEdge, Double>     _edgeWeights;
+	static final double                    INFINITY = Integer.MAX_VALUE;
 
 
 	/**
@@ -41,20 +36,17 @@ public class Algorithms
 	 * this edge
 	 *            
 	 * @param minDists
-	 *            the map of nodes to their minimum distance from the target
+	 *            the minimum distance of each node from the target, indexed by snapshot id
 	 * @param node
-	 * 			  the node to check the distance for
+	 * 			  the snapshot id of the node to check the distance for
 	 * @return minimum distance to target or infinity if the target is unreachable
 	 *            
 	 */
 	private static double heuristicF(
-			HashMap<CyNode, Double> minDists,
-			CyNode node)
+			double[] minDists,
+			int node)
 	{
-		if (minDists.containsKey(node))
-			return minDists.get(node);
-		else
-			return INFINITY;
+		return minDists[node];
 	}
 
 
@@ -160,12 +152,12 @@ public class Algorithms
 	 * with the distances in the input graph as a heuristic. Because the
 	 * algorithm computes paths over subsets of the initial heuristic is valid
 	 * and effective. If the graph contains n less than k paths, n paths will be
-	 * returned.
+	 * returned. All the mutable state of the run is kept in the supplied
+	 * context, so concurrent runs on separate contexts are safe.
 	 *
-	 * @param network
-	 *            the supplied network
-	 * @param cyNodeToId
-     *            the map that maps CyNode object to its string name
+	 * @param context
+	 *            the state of this run, including the network snapshot and
+	 *            the edges hidden from the algorithm
 	 * @param source
 	 *            the source node
 	 * @param target
@@ -177,8 +169,7 @@ public class Algorithms
 	 * @return a list of k-shortest paths in sorted order by cost
 	 */
 	public static ArrayList<PathWay> ksp(
-			CyNetwork network,
-			Map<CyNode, String> cyNodeToId,
+			KSPContext context,
 			CyNode source,
 			CyNode target,
 			int maxK,
@@ -187,192 +178,610 @@ public class Algorithms
 		// the list of shortest paths
 		ArrayList<PathWay> A = new ArrayList<PathWay>();
 
-		// compute the original distance from the source to use for the
-		// heuristic function
-		HashMap<CyNode, Double> minDists =
-				reverseSingleSourceDijkstra(network, target);
+		KSPIterator paths = kspIterator(context, source, target, maxK, includePathScoreTies);
+		while (paths.hasNext())
+			A.add(paths.next());
+
+		return A;
+			}
+
+
+	/**
+	 * Iterates over the k shortest acyclic paths in the supplied network
+	 * computed by Yen's algorithm, in the order they are accepted. Nothing
+	 * is computed until the first path is requested, and every following
+	 * path is computed when it is requested, so the paths can be consumed as
+	 * soon as they are found. Yields the same paths as ksp, and stops
+	 * yielding paths once the context is cancelled
+	 *
+	 * @param context
+	 *            the state of this run, including the network snapshot and
+	 *            the edges hidden from the algorithm
+	 * @param source
+	 *            the source node
+	 * @param target
+	 *            the target node
+	 * @param maxK
+	 *            the number of shortest paths
+	 * @param includePathScoreTies
+	 * 			  the option to include all paths of equal length
+	 * @return an iterator over the k-shortest paths in sorted order by cost
+	 */
+	public static KSPIterator kspIterator(
+			KSPContext context,
+			CyNode source,
+			CyNode target,
+			int maxK,
+			boolean includePathScoreTies)
+	{
+		GraphSnapshot graph = context.getGraph();
+		return kspIterator(context, graph.getNodeId(source), graph.getNodeId(target),
+				maxK, includePathScoreTies);
+	}
 
-		// compute the initial shortest path to initialize Yen's
-		PathWay shortestPath = dijkstra(network, cyNodeToId, source, target);
 
-		// there is no path from source to target
-		if (shortestPath == null)
-			return A;
+	/**
+	 * Iterates over the k shortest acyclic paths between two nodes given by
+	 * their snapshot ids, such as the virtual super source and super target
+	 * of the snapshot
+	 *
+	 * @param context
+	 *            the state of this run, including the network snapshot and
+	 *            the edges hidden from the algorithm
+	 * @param sourceId
+	 *            the snapshot id of the source node
+	 * @param targetId
+	 *            the snapshot id of the target node
+	 * @param maxK
+	 *            the number of shortest paths
+	 * @param includePathScoreTies
+	 * 			  the option to include all paths of equal length
+	 * @return an iterator over the k-shortest paths in sorted order by cost
+	 */
+	public static KSPIterator kspIterator(
+			KSPContext context,
+			int sourceId,
+			int targetId,
+			int maxK,
+			boolean includePathScoreTies)
+	{
+		return new YenIterator(context, sourceId, targetId, maxK, includePathScoreTies);
+	}
 
-		A.add(shortestPath);
 
-		// the heap, stores the potential k shortest paths
-		ArrayList<PathWay> B = new ArrayList<PathWay>();
+	/**
+	 * The state of a run of Yen's algorithm between two accepted paths.
+	 * Each path is computed by the call to hasNext or next that first
+	 * needs it
+	 */
+	private static class YenIterator implements KSPIterator
+	{
+		/** the state of this run */
+		private final KSPContext context;
+		/** the snapshot of the network */
+		private final GraphSnapshot graph;
+		/** the snapshot id of the source node */
+		private final int sourceId;
+		/** the snapshot id of the target node */
+		private final int targetId;
+		/** the number of shortest paths */
+		private final int maxK;
+		/** the option to include all paths of equal length */
+		private final boolean includePathScoreTies;
+
+		/** the minimum distance of each node from the target, null until the first path is computed */
+		private double[] minDists;
+		/** the heap, stores the potential k shortest paths */
+		private CandidatePathQueue B;
+		/** the trie of the prefixes of accepted paths */
+		private PrefixTrie prefixTrie;
+		/** the most recently accepted path */
+		private PathWay latestPath;
+		/** the snapshot ids of the nodes of the most recently accepted path */
+		private int[] latestIds;
+		/** the position in the latest path where it deviates from the previously accepted paths */
+		private int latestDeviation;
+		/** the number of paths accepted so far, also the iteration of Yen's algorithm computing the next path */
+		private int accepted;
+		/** the next path, computed but not returned yet */
+		private PathWay next;
+		/** whether no path is left */
+		private boolean done;
 
-		// A cache mapping prefixes of accepted paths to the next node after
-		// the prefix. Used to avoid scanning all previous paths many times,
-		// which otherwise dominates runtime.
-		HashMap<ArrayList<CyNode>, ArrayList<CyNode>> prefixCache =
-				new HashMap<ArrayList<CyNode>, ArrayList<CyNode>>();
-		for (int i = 1; i < shortestPath.size(); i++)
+		/**
+		 * Constructor of the iterator, doesn't compute any path
+		 *
+		 * @param context
+		 *            the state of this run
+		 * @param sourceId
+		 *            the snapshot id of the source node
+		 * @param targetId
+		 *            the snapshot id of the target node
+		 * @param maxK
+		 *            the number of shortest paths
+		 * @param includePathScoreTies
+		 *            the option to include all paths of equal length
+		 */
+		YenIterator(
+				KSPContext context,
+				int sourceId,
+				int targetId,
+				int maxK,
+				boolean includePathScoreTies)
 		{
-			ArrayList<CyNode> subPath =
-					new ArrayList<CyNode>(shortestPath.nodeList.subList(0, i));
-			CyNode node = shortestPath.get(i);
+			this.context = context;
+			this.graph = context.getGraph();
+			this.sourceId = sourceId;
+			this.targetId = targetId;
+			this.maxK = maxK;
+			this.includePathScoreTies = includePathScoreTies;
+		}
 
-			if (prefixCache.containsKey(subPath))
-			{
-				prefixCache.get(subPath).add(node);
-			}
-			else
+
+		@Override
+		public boolean hasNext()
+		{
+			if (next == null && !done)
 			{
-				prefixCache
-				.put(subPath, new ArrayList<CyNode>(Arrays.asList(node)));
+				next = latestPath == null ? computeFirstPath() : computeNextPath();
+				if (next == null)
+					done = true;
 			}
+
+			return next != null;
 		}
 
-		// continue the loop if includePathScoreTies is true even if k is greater or equal to than maxK
-		for (int k = 1; k < maxK || includePathScoreTies; k++)
+
+		@Override
+		public PathWay next()
 		{
-			// previously computed shortest path
-			PathWay latestPath = A.get(A.size() - 1);
+			if (!hasNext())
+				throw new NoSuchElementException();
 
-			// process each node of the most recently found path, computing the
-			// shortest path that deviates at that node and adding it to the
-			// candidate heap
-			for (int i = 0; i < latestPath.size() - 1; i++)
-			{
-				CyNode nodeSpur = latestPath.get(i);
-				List<CyNode> pathRoot = latestPath.nodeList.subList(0, i + 1);
+			PathWay path = next;
+			next = null;
+			return path;
+		}
 
-				// hide edges incoming to x until iteration k is over to avoid
-				// finding cycles. note that this effect is cumulative, meaning
-				// that while processing the current node in the path, all
-				// incoming edges to this node and all previous nodes have
-				// been hidden
-				List<CyEdge> inEdges =
-						network.getAdjacentEdgeList(nodeSpur, CyEdge.Type.INCOMING);
-				for (CyEdge inEdge : inEdges)
-				{
-					hiddenEdges.add(inEdge);
-				}
 
-				// for each previously-found shortest path P_j with the same
-				// first i nodes as the first i nodes of prevPath, hide the
-				// edge from x to the i+1 node in P_j to ensure we don't
-				// re-find a previously found path. Lookup the prefixes in a
-				// cache to disallow them. Requires more memory to store the
-				// cache, but saves scanning the list of found paths
-				for (CyNode repNode : prefixCache
-						.get(latestPath.nodeList.subList(0, i + 1)))
-				{
-					CyEdge repEdge = getEdge(network, nodeSpur, repNode);
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
 
-					if (repEdge != null)
-					{
-						hiddenEdges.add(repEdge);
-					}
-				}
 
-				// find the shortest path using A*
-				PathWay pathSpur =
-						shortestPathAStar(network, cyNodeToId, nodeSpur, target, minDists);
+		@Override
+		public int getCandidateCount()
+		{
+			return B != null ? B.size() : 0;
+		}
+
+
+		/**
+		 * Computes the shortest path and the state the following paths are
+		 * computed from
+		 *
+		 * @return the shortest path, or null if the target is unreachable
+		 */
+		private PathWay computeFirstPath()
+		{
+			// compute the original distance from the source to use for the
+			// heuristic function
+			minDists = heuristicDistances(context, targetId);
+
+			if (context.isCancelled())
+				return null;
+
+			// compute the initial shortest path to initialize Yen's
+			PathWay shortestPath = dijkstra(graph, context.getCyNodeToId(), sourceId, targetId);
+
+			// there is no path from source to target
+			if (shortestPath == null)
+				return null;
+
+			// the heap, stores the potential k shortest paths
+			B = new CandidatePathQueue(includePathScoreTies);
+
+			// A trie of the prefixes of accepted paths, recording the next nodes
+			// taken after each prefix. Used to avoid scanning all previous paths
+			// many times, which otherwise dominates runtime. Accepted paths share
+			// the trie nodes of their common prefixes
+			prefixTrie = new PrefixTrie();
+			latestIds = toNodeIds(graph, shortestPath);
+			prefixTrie.addPath(latestIds);
+
+			// the position in the latest path of the node where it deviates from
+			// the previously accepted paths. Spur nodes before it were already
+			// processed with the same root path and the same next nodes hidden,
+			// so their spur paths are already candidates (Lawler's modification)
+			latestDeviation = 0;
+
+			latestPath = shortestPath;
+			accepted = 1;
+			return shortestPath;
+		}
+
+
+		/**
+		 * Runs iterations of Yen's algorithm until the next path is accepted
+		 *
+		 * @return the next shortest path, or null if there is none or the
+		 *         k paths and their ties were already accepted
+		 */
+		private PathWay computeNextPath()
+		{
+			// continue the loop if includePathScoreTies is true even if k is greater or equal to than maxK
+			if (!(accepted < maxK || includePathScoreTies) || context.isCancelled())
+				return null;
+
+			// bounds the candidates to the paths that can still be accepted,
+			// at most maxK - |A| more paths, or with ties at least one more path
+			// and the paths tied with it. The ties only start being checked
+			// once three paths are accepted, see the break below
+			B.setCapacity(includePathScoreTies
+					? Math.max(Math.max(maxK, 3) - accepted, 1)
+					: maxK - accepted);
+
+			// process each node of the most recently found path from its
+			// deviation node on, computing the shortest path that deviates at
+			// that node and adding it to the candidate heap. The spur paths are
+			// added in the order of their spur node whether they were computed
+			// serially or in parallel
+			PathWay[] spurPaths = computeSpurPaths(context, latestIds,
+					prefixTrie.getPrefixNodes(latestIds), rootDistances(graph, latestIds),
+					latestDeviation, targetId, minDists);
+
+			// the spur searches stop once the run is cancelled, so the
+			// candidates may be missing the next shortest path
+			if (context.isCancelled())
+				return null;
+
+			for (int i = latestDeviation; i < spurPaths.length; i++)
+			{
+				PathWay pathSpur = spurPaths[i];
 
 				// short circuit if the target node was unreachable, which is
 				// expected to happen as we remove edges
 				if (pathSpur != null)
 				{
 					// concatenates prevPath[:i+1] and the shortest path from
-					// nodeSpur to the target, and add this path to candidates
+					// nodeSpur to the target, and add this path to candidates.
+					// the spur search starts from the distance of the root
+					// path, so its weight is already the weight of the whole
+					// path
 					ArrayList<CyNode> pathTotal = new ArrayList<CyNode>(
-							pathRoot.subList(0, pathRoot.size() - 1));
+							latestPath.nodeList.subList(0, i));
 					pathTotal.addAll(pathSpur.nodeList);
 
-					double distTotal = computePathDist(network, pathTotal);
-					PathWay potentialK = new PathWay(pathTotal, cyNodeToId, distTotal);
+					PathWay potentialK = new PathWay(pathTotal, context.getCyNodeToId(), pathSpur.weight);
 
-					if (!B.contains(potentialK))
-					{
-						B.add(potentialK);
-					}
+					// the candidate is ignored if it is already in the heap
+					B.add(potentialK);
+
+					// stops with the paths found so far once the candidates
+					// outgrow the limits of the run
+					if (context.checkCandidateLimits(B.size(), B.getNodeCount()))
+						return null;
 				}
 			}
 
-			resetHiddenEdges();
+			// terminates early if there are no more paths found from the
+			// source to the target
+			if (B.isEmpty())
+				return null;
 
-			if (B.size() > 0)
-			{
-				// sorts the candidate paths by their weight
-				Collections.sort(B, new Comparator<PathWay>() {
+			// accepts the next shortest path on the candidates heap, which
+			// is necessarily the next shortest path
+			PathWay newShortest = B.poll();
 
-					@Override
-					public int compare(PathWay path1, PathWay path2)
-					{
-						return Double.compare(path1.weight, path2.weight);
-					}
+			// adds this to the trie of prefixes for efficient lookup later.
+			// the first prefix new to the trie ends right after the node
+			// where the path deviates from the accepted paths
+			int[] newIds = toNodeIds(graph, newShortest);
+			int newDeviation = Math.max(prefixTrie.addPath(newIds) - 1, 0);
+
+			// If the ties stops then stop the iteration, don't add the newShortest
+			if (accepted >= maxK && accepted > 2 && latestPath.weight != newShortest.weight)
+				return null;
 
-				});
+			// adds the next shortest path to the accepted list of paths
+			latestPath = newShortest;
+			latestIds = newIds;
+			latestDeviation = newDeviation;
+			accepted++;
+			return newShortest;
+		}
+	}
 
-				// accepts the next shortest path on the candidates heap, which
-				// is necessarily the next shortest path
-				PathWay newShortest = B.remove(0);
 
-				// adds this to the list of prefixes for efficient lookup later
-				for (int i = 1; i < newShortest.size(); i++)
-				{
-					CyNode currNode = newShortest.get(i);
-					ArrayList<CyNode> subPath = new ArrayList<CyNode>(
-							newShortest.nodeList.subList(0, i));
+	/**
+	 * Computes the distance of each node to the target used as the heuristic
+	 * of the spur searches. A landmark index bounds the distances instead,
+	 * which skips the search over the whole network. Otherwise the distances
+	 * are reused from an earlier run on the same target set, or computed with
+	 * a reverse Dijkstra search that follows the hidden edges as well
+	 *
+	 * @param context
+	 *            the state of this run
+	 * @param target
+	 *            the snapshot id of the target node
+	 * @return the minimum distance of each node from the target, indexed by
+	 *         snapshot id
+	 */
+	static double[] heuristicDistances(KSPContext context, int target)
+	{
+		GraphSnapshot graph = context.getGraph();
 
-					if (!prefixCache.containsKey(subPath))
-						prefixCache.put(subPath, new ArrayList<CyNode>());
+		double[] minDists = null;
+		if (context.getLandmarkIndex() != null)
+			minDists = context.getLandmarkIndex().lowerBounds(graph, target);
+		if (minDists == null && context.getTargetDistances() != null)
+			minDists = context.getTargetDistances().getDistances(graph, target);
+		if (minDists == null)
+			minDists = reverseSingleSourceDijkstra(graph, target);
 
-					ArrayList<CyNode> cachedPath = prefixCache.get(subPath);
-					if (!cachedPath.contains(currNode))
-						cachedPath.add(currNode);
-				}
+		return minDists;
+	}
+
+
+	/**
+	 * Computes the shortest path deviating from the latest accepted path at
+	 * each of its nodes. Runs the spur searches one after the other on the
+	 * supplied context, or as fork-join tasks on the context's spur search
+	 * pool, each with its own hidden edges. Both modes find the same spur
+	 * paths, since a spur search can never reach the root nodes whose edges
+	 * the serial mode keeps hidden from earlier spur nodes.
+	 *
+	 * @param context
+	 *            the state of this run
+	 * @param latestPath
+	 *            the snapshot ids of the nodes of the most recently accepted path
+	 * @param prefixes
+	 *            the trie node of each prefix of the latest path
+	 * @param rootDists
+	 *            the distance from the source to each node of the latest path
+	 * @param firstSpur
+	 *            the position of the first spur node, where the latest path
+	 *            deviates from the previously accepted paths
+	 * @param target
+	 *            the snapshot id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target
+	 * @return the spur path of each node of the latest path, indexed by its
+	 *         position in the path, null before the first spur node and where
+	 *         the target is unreachable
+	 */
+	private static PathWay[] computeSpurPaths(
+			KSPContext context,
+			int[] latestPath,
+			PrefixTrie.Node[] prefixes,
+			double[] rootDists,
+			int firstSpur,
+			int target,
+			double[] minDists)
+	{
+		int spurCount = latestPath.length - 1;
+		PathWay[] spurPaths = new PathWay[spurCount];
+		ForkJoinPool pool = context.getSpurSearchPool();
+
+		if (pool == null || spurCount - firstSpur < 2)
+		{
+			for (int i = 0; i < spurCount; i++)
+			{
+				// hide edges incoming to x until iteration k is over to avoid
+				// finding cycles. note that this effect is cumulative, meaning
+				// that while processing the current node in the path, all
+				// incoming edges to this node and all previous nodes have
+				// been hidden
+				hideIncomingEdges(context, latestPath[i]);
+
+				// the nodes before the first spur node are only part of the
+				// root paths of the following spur nodes
+				if (i < firstSpur)
+					continue;
 
-				// If the ties stops then break the loop, don't add the newShortest
-				if (k >= maxK && A.size() > 2 && A.get(A.size() - 1).weight != newShortest.weight)
+				// stops between spur searches once the run is cancelled
+				if (context.isCancelled())
 					break;
 
-				// adds the next shortest path to the accepted list of paths
-				A.add(newShortest);
+				hidePrefixEdges(context, prefixes[i]);
+
+				// find the shortest path using A*
+				spurPaths[i] = spurSearch(context, latestPath[i], target, minDists, rootDists[i]);
 			}
-			else
+
+			context.resetHiddenEdges();
+			return spurPaths;
+		}
+
+		final List<SpurSearchTask> tasks = new ArrayList<SpurSearchTask>(spurCount - firstSpur);
+		for (int i = firstSpur; i < spurCount; i++)
+			tasks.add(new SpurSearchTask(context.getSpurContext(i - firstSpur), latestPath, i, prefixes[i],
+					rootDists[i], target, minDists));
+
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute()
 			{
-				// terminates early if there are no more paths found from the
-				// source to the target
-				break;
+				invokeAll(tasks);
 			}
+		});
+
+		for (int i = firstSpur; i < spurCount; i++)
+			spurPaths[i] = tasks.get(i - firstSpur).getRawResult();
+
+		return spurPaths;
+	}
+
+
+	/**
+	 * Fork-join task computing the spur path of a single node of the latest
+	 * accepted path on its own context. Hides the incoming edges of the whole
+	 * root path at once instead of accumulating them over the spur nodes.
+	 */
+	private static class SpurSearchTask extends RecursiveTask<PathWay>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** the context of this spur search */
+		private final KSPContext context;
+		/** the snapshot ids of the nodes of the most recently accepted path */
+		private final int[] latestPath;
+		/** the position of the spur node in the latest path */
+		private final int spurIndex;
+		/** the trie node of the root path ending at the spur node */
+		private final PrefixTrie.Node prefix;
+		/** the distance from the source to the spur node along the root path */
+		private final double rootDist;
+		/** the snapshot id of the target node */
+		private final int target;
+		/** the minimum distance of each node from the target */
+		private final double[] minDists;
+
+		/**
+		 * Constructor of the task
+		 *
+		 * @param context
+		 *            the context of this spur search, not shared with other tasks
+		 * @param latestPath
+		 *            the snapshot ids of the nodes of the most recently accepted path
+		 * @param spurIndex
+		 *            the position of the spur node in the latest path
+		 * @param prefix
+		 *            the trie node of the root path ending at the spur node
+		 * @param rootDist
+		 *            the distance from the source to the spur node along the root path
+		 * @param target
+		 *            the snapshot id of the target node
+		 * @param minDists
+		 *            the minimum distance of each node from the target
+		 */
+		SpurSearchTask(
+				KSPContext context,
+				int[] latestPath,
+				int spurIndex,
+				PrefixTrie.Node prefix,
+				double rootDist,
+				int target,
+				double[] minDists)
+		{
+			this.context = context;
+			this.latestPath = latestPath;
+			this.spurIndex = spurIndex;
+			this.prefix = prefix;
+			this.rootDist = rootDist;
+			this.target = target;
+			this.minDists = minDists;
 		}
 
-		return A;
-			}
+
+		@Override
+		protected PathWay compute()
+		{
+			// skips the spur search once the run is cancelled
+			if (context.isCancelled())
+				return null;
+
+			for (int i = 0; i <= spurIndex; i++)
+				hideIncomingEdges(context, latestPath[i]);
+
+			hidePrefixEdges(context, prefix);
+
+			return spurSearch(context, latestPath[spurIndex], target, minDists, rootDist);
+		}
+	}
 
 
 	/**
-	 * Used to store data about a node while performing A*
+	 * Hides every edge incoming to a node until the hidden edges are reset
+	 *
+	 * @param context
+	 *            the state of this run
+	 * @param node
+	 *            the snapshot id of the node to hide the incoming edges of
 	 */
-	private static class AStarData
+	static void hideIncomingEdges(KSPContext context, int node)
 	{
-		public double heurDist;
-		public CyNode node;
-		public double actDist;
+		GraphSnapshot graph = context.getGraph();
+		int[] inOffsets = graph.inOffsets();
+		int[] inEdges = graph.inEdges();
+
+		for (int j = inOffsets[node]; j < inOffsets[node + 1]; j++)
+		{
+			context.hideEdge(inEdges[j]);
+		}
+	}
+
 
+	/**
+	 * For each previously-found shortest path P_j with the same first i nodes
+	 * as the first i nodes of the latest path, hides the edge from the spur
+	 * node to the i+1 node in P_j to ensure we don't re-find a previously found
+	 * path. Looks up the next nodes in the trie of prefixes to disallow them,
+	 * which saves scanning the list of found paths
+	 *
+	 * @param context
+	 *            the state of this run
+	 * @param prefix
+	 *            the trie node of the root path ending at the spur node
+	 */
+	static void hidePrefixEdges(KSPContext context, PrefixTrie.Node prefix)
+	{
+		GraphSnapshot graph = context.getGraph();
+		int spurId = prefix.getNodeId();
 
-		public AStarData(double heurDist, CyNode node, double actDist)
+		for (int i = 0; i < prefix.nextHopCount(); i++)
 		{
-			this.heurDist = heurDist;
-			this.node = node;
-			this.actDist = actDist;
+			int repEdge = graph.findEdge(spurId, prefix.getNextHop(i));
+
+			if (repEdge != -1)
+			{
+				context.hideEdge(repEdge);
+			}
 		}
 	}
 
 
 	/**
-	 * "Resets" hidden edges, by changing hiddenEdges state to what it was
-	 * initialized to
+	 * Computes the distance from the first node of a path to each of its
+	 * nodes, summing the edge weights from the first node on
+	 *
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param path
+	 *            the snapshot ids of the nodes of the path
+	 * @return the distance along the path to the node at each position
+	 */
+	static double[] rootDistances(GraphSnapshot graph, int[] path)
+	{
+		double[] distances = new double[path.length];
+		for (int i = 1; i < path.length; i++)
+			distances[i] = distances[i - 1] + graph.getWeight(graph.findEdge(path[i - 1], path[i]));
+
+		return distances;
+	}
+
+
+	/**
+	 * Converts a path to the snapshot ids of its nodes
+	 *
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param path
+	 *            the path
+	 * @return the snapshot id of each node of the path, in order
 	 */
-	private static void resetHiddenEdges()
+	static int[] toNodeIds(GraphSnapshot graph, PathWay path)
 	{
-		hiddenEdges.clear();
-		hiddenEdges.addAll(initialHiddenEdges);
+		int[] ids = new int[path.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = graph.getNodeId(path.nodeList, i);
+
+		return ids;
 	}
 
 
@@ -380,54 +789,51 @@ public class Algorithms
 	 * An implementation of the A* algorithm. Computes exact shortest paths in
 	 * the network, utilizing the fact that the heuristic function is monotonic
 	 *
-	 * @param network
-	 *            the supplied network
-	 * @param cyNodeToId
-     *            the map that maps CyNode object to its string name
+	 * @param context
+	 *            the state of the current run, including the network
+	 *            snapshot and the edges hidden from the search
 	 * @param source
-	 *            the source node
+	 *            the snapshot id of the source node
 	 * @param target
-	 *            the target node
+	 *            the snapshot id of the target node
 	 * @param minDists
-	 *            the map of nodes to their minimum distance from the target
-	 * @return a path from source to target and its weight
+	 *            the minimum distance of each node from the target, indexed by snapshot id
+	 * @param rootDist
+	 *            the distance the search starts from at the source, such as the
+	 *            distance of the root path of a spur node
+	 * @return a path from source to target and its weight plus rootDist
 	 */
 	public static PathWay shortestPathAStar(
-			CyNetwork network,
-			Map<CyNode, String> cyNodeToId,
-			CyNode source,
-			CyNode target,
-			final HashMap<CyNode, Double> minDists)
+			KSPContext context,
+			int source,
+			int target,
+			final double[] minDists,
+			double rootDist)
 	{
-		PathWay currPath = new PathWay(new ArrayList<CyNode>(), null, 0.);
+		PathWay currPath = new PathWay(new ArrayList<CyNode>(), null, rootDist);
 
 		// if source==target:
 		// return ({source:0}, {source:[source]})
-		if (source.equals(target))
+		if (source == target)
 		{
 			return currPath;
 		}
 
-		// dictionary of final distances
-		HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		// dictionary of paths
-		HashMap<CyNode, CyNode> preds = new HashMap<CyNode, CyNode>();
-		// map of seen nodes and their distancess
-		HashMap<CyNode, Double> seen = new HashMap<CyNode, Double>();
-		seen.put(source, 0.);
+		GraphSnapshot graph = context.getGraph();
+		int[] outOffsets = graph.outOffsets();
+		int[] outEdges = graph.outEdges();
+		int[] edgeTargets = graph.edgeTargets();
+		double[] weights = graph.weights();
 
-		// heap of nodes on the border to process, keyed by heuristic distance
-		PriorityQueue<AStarData> fringe =
-				new PriorityQueue<AStarData>(10, new Comparator<AStarData>() {
-					@Override
-					public int compare(AStarData data1, AStarData data2)
-					{
-						return Double.compare(data1.heurDist, data2.heurDist);
-					}
+		// best distance seen so far and predecessor of each node, final once
+		// the node is processed. the labels are pooled in the context and
+		// reset in O(1), so the spur searches don't allocate per call
+		SearchLabels labels = context.getSearchLabels();
+		labels.setLabel(source, rootDist, -1);
 
-				});
-
-		fringe.add(new AStarData(heuristicF(minDists, source), source, 0));
+		// heap of nodes on the border to process, keyed by heuristic distance
+		IndexedDaryHeap fringe = labels.getHeap();
+		fringe.insert(source, heuristicF(minDists, source));
 
 		// real-valued edge weights can cause the search to fail due to
 		// accumulated error summing along the path. test with a relative
@@ -435,45 +841,38 @@ public class Algorithms
 		final double REL_EPS = 1E-10;
 
 		// iteratively search the graph outward until we've processed all nodes
-		while (fringe.size() > 0)
+		while (!fringe.isEmpty())
 		{
-			AStarData currData = fringe.poll();
-			CyNode currNode = currData.node;
-
-			// if we've already processed this node, don't re-process it. this
-			// happens beecause when we see a better path to an already seen
-			// node, it's cheaper to leave it in the heap and deal with it here
-			// than to remove it
-			if (distances.containsKey(currNode))
-				continue;
+			int currNode = fringe.poll();
 
 			// process this node, this is necessarily the best possible path
 			// to it
-			distances.put(currNode, currData.actDist);
+			labels.setDone(currNode);
+			double currDist = labels.getDistance(currNode);
 
 			// check for a solution
-			if (currNode.equals(target))
+			if (currNode == target)
 				break;
 
 			// examine all neighbors to this node and consider adding them to
 			// the fringe
-			List<CyEdge> neighbors =
-					network.getAdjacentEdgeList(currNode, CyEdge.Type.OUTGOING);
-			for (CyEdge nextEdge : neighbors)
+			for (int i = outOffsets[currNode]; i < outOffsets[currNode + 1]; i++)
 			{
+				int nextEdge = outEdges[i];
+
 				// doesn't consider edges that are hidden. uses this structure
 				// of hiding edges because manipulating the graph completely
 				// dominates runtime in cytoscape
-				if (hiddenEdges.contains(nextEdge))
+				if (context.isHidden(nextEdge))
 				{
 					continue;
 				}
 
-				CyNode nextNode = nextEdge.getTarget();
+				int nextNode = edgeTargets[nextEdge];
 
 				// the actual distance to the node from the source
 				double nextActDist =
-						currData.actDist + getWeight(network, nextEdge);
+						currDist + weights[nextEdge];
 
 				// the heuristic function gives a lower bound on the path
 				// length to go the rest of the way to the finish from the start
@@ -489,11 +888,11 @@ public class Algorithms
 				// if we've already processed the neighbor, then this can't
 				// possibly be a better path, assuming the problem is
 				// well-formed
-				if (distances.containsKey(nextNode))
+				if (labels.isDone(nextNode))
 				{
 					// verify that the graph and heuristic don't break the
 					// search property
-					if ((nextActDist * (1 + REL_EPS)) < distances.get(nextNode))
+					if ((nextActDist * (1 + REL_EPS)) < labels.getDistance(nextNode))
 					{
 						JOptionPane.showMessageDialog(
 								null,
@@ -502,229 +901,447 @@ public class Algorithms
 					}
 				}
 				// if this node hasn't already been processed, we need to
-				// consider adding it to the heap. if it's not already in the
-				// heap, we should only add it if this path to it is an
-				// improvement over the previous path. for performance, we leave
-				// the old entry in the heap in that case and skip it when it
-				// pops out
-				else if (!seen.containsKey(nextNode)
-						|| nextActDist < seen.get(nextNode))
+				// consider adding it to the heap. if it's already in the
+				// heap, we only lower its key if this path to it is an
+				// improvement over the previous path
+				else if (nextActDist < labels.getDistance(nextNode))
 				{
-					seen.put(nextNode, nextActDist);
-					fringe.add(
-							new AStarData(nextHeurDist, nextNode, nextActDist));
-					preds.put(nextNode, currNode);
+					labels.setLabel(nextNode, nextActDist, currNode);
+					fringe.insertOrDecrease(nextNode, nextHeurDist);
 				}
 			}
 		}
 
 		// builds the path and returns it
-		ArrayList<CyNode> nodeList = constructNodeList(preds, source, target);
+		ArrayList<CyNode> nodeList = constructNodeList(graph, labels, source, target);
 		if (nodeList == null)
 			return null;
 
-		return new PathWay(nodeList, cyNodeToId, distances.get(target));
+		return new PathWay(nodeList, context.getCyNodeToId(), labels.getDistance(target));
 	}
 
 
 	/**
-	 * Computes the shortest distance from a source to every node in the graph
+	 * Runs a spur search with the search selected in the context, either the
+	 * forward A* search or the bidirectional A* search
 	 *
-	 * @param network
-	 *            the supplied network
+	 * @param context
+	 *            the state of the current run, including the network
+	 *            snapshot and the edges hidden from the search
 	 * @param source
-	 *            the source
-	 * @return a map of nodes and their distances from the source
+	 *            the snapshot id of the spur node
+	 * @param target
+	 *            the snapshot id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target, indexed by snapshot id
+	 * @param rootDist
+	 *            the distance from the source of the run to the spur node along the root path
+	 * @return a path from source to target and the weight of the root path and the spur path
 	 */
-	public static HashMap<CyNode, Double> reverseSingleSourceDijkstra(
-			CyNetwork network,
-			CyNode source)
-			{
-		final HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		PriorityQueue<CyNode> pq =
-				new PriorityQueue<CyNode>(10, new Comparator<CyNode>() {
-					@Override
-					public int compare(CyNode o1, CyNode o2)
-					{
-						return Double.compare(distances.get(o1), distances.get(o2));
-					}
-				});
+	static PathWay spurSearch(
+			KSPContext context,
+			int source,
+			int target,
+			double[] minDists,
+			double rootDist)
+	{
+		if (context.isBidirectionalSpurSearch())
+			return bidirectionalAStar(context, source, target, minDists, rootDist);
 
-		// intializes distances
-		for (CyNode v : network.getNodeList())
+		return shortestPathAStar(context, source, target, minDists, rootDist);
+	}
+
+
+	/**
+	 * A bidirectional version of the A* algorithm. Searches forward from the
+	 * source and backward from the target over the incoming edges until the
+	 * two searches meet, so the search doesn't widen over every node attached
+	 * to the target. The forward search is guided by the distances to the
+	 * target, and the backward search by their negation, a consistent
+	 * potential since the distances are exact on a supergraph of the
+	 * unhidden network. With these potentials the shortest path is found
+	 * once the smallest keys of both searches sum up to the best path seen
+	 *
+	 * @param context
+	 *            the state of the current run, including the network
+	 *            snapshot and the edges hidden from the search
+	 * @param source
+	 *            the snapshot id of the source node
+	 * @param target
+	 *            the snapshot id of the target node
+	 * @param minDists
+	 *            the minimum distance of each node from the target, indexed by snapshot id
+	 * @param rootDist
+	 *            the distance the search starts from at the source, such as the
+	 *            distance of the root path of a spur node
+	 * @return a path from source to target and its weight plus rootDist
+	 */
+	public static PathWay bidirectionalAStar(
+			KSPContext context,
+			int source,
+			int target,
+			double[] minDists,
+			double rootDist)
+	{
+		// if source==target:
+		// return ({source:0}, {source:[source]})
+		if (source == target)
 		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
+			return new PathWay(new ArrayList<CyNode>(), null, rootDist);
 		}
-		distances.put(source, 0.);
-		pq.add(source);
 
-		while (!pq.isEmpty())
+		// the target is necessarily unreachable
+		if (isInf(heuristicF(minDists, source)))
+			return null;
+
+		GraphSnapshot graph = context.getGraph();
+		int[] outOffsets = graph.outOffsets();
+		int[] outEdges = graph.outEdges();
+		int[] inOffsets = graph.inOffsets();
+		int[] inEdges = graph.inEdges();
+		int[] edgeSources = graph.edgeSources();
+		int[] edgeTargets = graph.edgeTargets();
+		double[] weights = graph.weights();
+
+		// best distance seen so far from the source and to the target, with
+		// the previous node from the source and the next node to the target.
+		// the labels are pooled in the context and reset in O(1)
+		SearchLabels forwardLabels = context.getSearchLabels();
+		SearchLabels backwardLabels = context.getBackwardSearchLabels();
+
+		IndexedDaryHeap forward = forwardLabels.getHeap();
+		IndexedDaryHeap backward = backwardLabels.getHeap();
+		forwardLabels.setLabel(source, rootDist, -1);
+		backwardLabels.setLabel(target, 0., -1);
+		forward.insert(source, heuristicF(minDists, source));
+		backward.insert(target, -heuristicF(minDists, target));
+
+		// the weight of the best path seen so far and the node where its
+		// forward and backward halves meet
+		double best = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+
+		while (!forward.isEmpty() && !backward.isEmpty())
 		{
-			CyNode current = pq.poll();
-
-			// goes through incoming neighbors because we are finding the paths
-			// that lead to the target. however, we don't want to reverse the
-			// network and call a normal SSD because manipulating the network
-			// dominates runtime in Cytoscape
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.INCOMING))
+			// stops once no unprocessed node can lead to a better path
+			if (forward.getPriority(forward.peek())
+					+ backward.getPriority(backward.peek()) >= best)
+				break;
+
+			// expands the search with the smaller frontier
+			if (forward.size() <= backward.size())
 			{
-				CyNode neighbor = neighborEdge.getSource();
+				int currNode = forward.poll();
+				forwardLabels.setDone(currNode);
+				double currDist = forwardLabels.getDistance(currNode);
+
+				for (int i = outOffsets[currNode]; i < outOffsets[currNode + 1]; i++)
+				{
+					int nextEdge = outEdges[i];
+
+					// doesn't consider edges that are hidden
+					if (context.isHidden(nextEdge))
+						continue;
+
+					int nextNode = edgeTargets[nextEdge];
 
-				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+					// the target is necessarily unreachable along this edge
+					if (isInf(heuristicF(minDists, nextNode)) || forwardLabels.isDone(nextNode))
+						continue;
+
+					double nextActDist = currDist + weights[nextEdge];
+					if (nextActDist < forwardLabels.getDistance(nextNode))
+					{
+						forwardLabels.setLabel(nextNode, nextActDist, currNode);
+						forward.insertOrDecrease(nextNode, nextActDist + heuristicF(minDists, nextNode));
+
+						// the backward search already reached this node
+						double total = nextActDist + backwardLabels.getDistance(nextNode);
+						if (total < best)
+						{
+							best = total;
+							meeting = nextNode;
+						}
+					}
+				}
+			}
+			else
+			{
+				int currNode = backward.poll();
+				backwardLabels.setDone(currNode);
+				double currDist = backwardLabels.getDistance(currNode);
 
-				if (newCost < distances.get(neighbor))
+				for (int i = inOffsets[currNode]; i < inOffsets[currNode + 1]; i++)
 				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
+					int prevEdge = inEdges[i];
+
+					// doesn't consider edges that are hidden
+					if (context.isHidden(prevEdge))
+						continue;
+
+					int prevNode = edgeSources[prevEdge];
+					if (backwardLabels.isDone(prevNode))
+						continue;
 
-					// re-add to priority queue
-					pq.remove(neighbor);
-					pq.add(neighbor);
+					double prevActDist = currDist + weights[prevEdge];
+					if (prevActDist < backwardLabels.getDistance(prevNode))
+					{
+						backwardLabels.setLabel(prevNode, prevActDist, currNode);
+						backward.insertOrDecrease(prevNode, prevActDist - heuristicF(minDists, prevNode));
+
+						// the forward search already reached this node
+						double total = forwardLabels.getDistance(prevNode) + prevActDist;
+						if (total < best)
+						{
+							best = total;
+							meeting = prevNode;
+						}
+					}
 				}
 			}
 		}
 
+		if (meeting == -1)
+			return null;
+
+		// builds the path from the source to the meeting node, then from the
+		// meeting node to the target
+		ArrayList<CyNode> nodeList = new ArrayList<CyNode>();
+		for (int node = meeting; node != -1; node = forwardLabels.getParent(node))
+			nodeList.add(graph.getNode(node));
+		Collections.reverse(nodeList);
+
+		for (int node = backwardLabels.getParent(meeting); node != -1; node = backwardLabels.getParent(node))
+			nodeList.add(graph.getNode(node));
+
+		return new PathWay(nodeList, context.getCyNodeToId(), best);
+	}
+
+
+	/**
+	 * Computes the shortest distance from every node in the graph to a target
+	 * by searching the incoming edges outward from the target
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the snapshot id of the target to search outward from
+	 * @return the distance of each node to the target, indexed by snapshot id
+	 */
+	public static double[] reverseSingleSourceDijkstra(
+			GraphSnapshot graph,
+			int source)
+			{
+		double[] distances = new double[graph.nodeCount()];
+		singleSourceSearch(graph, null, source, true, distances, null);
+
+		return distances;
+			}
+
+
+	/**
+	 * Computes the shortest distance from a source to every node in the graph
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the snapshot id of the source
+	 * @return the distance of each node from the source, indexed by snapshot id
+	 */
+	public static double[] singleSourceDijkstra(
+			GraphSnapshot graph,
+			int source)
+			{
+		double[] distances = new double[graph.nodeCount()];
+		singleSourceSearch(graph, null, source, false, distances, null);
+
 		return distances;
 			}
 
 
 	/**
 	 * Computes the shortest distance from a source to every node in the graph
+	 * along with the shortest path tree rooted at the source
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param source
+	 *            the snapshot id of the source
+	 * @return the shortest path tree rooted at the source
+	 */
+	public static ShortestPathTree singleSourceDijkstraTree(
+			GraphSnapshot graph,
+			int source)
+			{
+		double[] distances = new double[graph.nodeCount()];
+		int[] parentEdges = new int[graph.nodeCount()];
+		singleSourceSearch(graph, null, source, false, distances, parentEdges);
+
+		return new ShortestPathTree(graph, source, false, distances, parentEdges);
+			}
+
+
+	/**
+	 * Computes the shortest distance from every node in the graph to a target
+	 * along with the shortest path tree leading to the target, without the
+	 * edges hidden in the supplied context
 	 *
-	 * @param network
-	 *            the supplied network
+	 * @param context
+	 *            the state of the current run, including the network
+	 *            snapshot and the edges hidden from the search
 	 * @param source
-	 *            the source
-	 * @return a map of nodes and their distances from the source
+	 *            the snapshot id of the target to search outward from
+	 * @return the reverse shortest path tree rooted at the target
 	 */
-	public static HashMap<CyNode, Double> singleSourceDijkstra(
-			CyNetwork network,
-			CyNode source)
+	public static ShortestPathTree reverseSingleSourceDijkstraTree(
+			KSPContext context,
+			int source)
 			{
-		HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		ArrayList<CyNode> pq = new ArrayList<CyNode>();
+		GraphSnapshot graph = context.getGraph();
+		double[] distances = new double[graph.nodeCount()];
+		int[] parentEdges = new int[graph.nodeCount()];
+		singleSourceSearch(graph, context, source, true, distances, parentEdges);
+
+		return new ShortestPathTree(graph, source, true, distances, parentEdges);
+			}
+
+
+	/**
+	 * Dijkstra search from a single source over every node in the graph.
+	 * Unreachable nodes are left at INFINITY
+	 *
+	 * @param graph
+	 *            the snapshot of the supplied network
+	 * @param context
+	 *            the context whose hidden edges are skipped, or null to
+	 *            search every edge
+	 * @param source
+	 *            the snapshot id of the source
+	 * @param reverse
+	 *            true to follow incoming edges, finding the distances to the
+	 *            source instead of from it
+	 * @param distances
+	 *            the array to fill with the distance of each node
+	 * @param parentEdges
+	 *            the array to fill with the edge connecting each node to its
+	 *            parent in the shortest path tree, or null to skip the tree
+	 */
+	private static void singleSourceSearch(
+			GraphSnapshot graph,
+			KSPContext context,
+			int source,
+			boolean reverse,
+			double[] distances,
+			int[] parentEdges)
+	{
+		// goes through incoming neighbors when searching in reverse because we
+		// are finding the paths that lead to the source. the snapshot keeps
+		// the incoming edges of each node so the network never needs to be
+		// reversed
+		int[] offsets = reverse ? graph.inOffsets() : graph.outOffsets();
+		int[] adjacency = reverse ? graph.inEdges() : graph.outEdges();
+		int[] neighbors = reverse ? graph.edgeSources() : graph.edgeTargets();
+		double[] weights = graph.weights();
+
+		IndexedDaryHeap pq = new IndexedDaryHeap(graph.nodeCount());
 
 		// intializes distances
-		for (CyNode v : network.getNodeList())
-		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
-		}
-		distances.put(source, 0.);
-		pq.add(source);
+		Arrays.fill(distances, INFINITY);
+		if (parentEdges != null)
+			Arrays.fill(parentEdges, -1);
+		distances[source] = 0.;
+		pq.insert(source, 0.);
 
 		while (!pq.isEmpty())
 		{
-			CyNode current = pq.remove(0);
+			int current = pq.poll();
 
-			// goes through the neighbors
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.OUTGOING))
+			for (int i = offsets[current]; i < offsets[current + 1]; i++)
 			{
-				CyNode neighbor = neighborEdge.getTarget();
+				int neighborEdge = adjacency[i];
+				if (context != null && context.isHidden(neighborEdge))
+					continue;
 
-				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+				int neighbor = neighbors[neighborEdge];
 
-				if (newCost < distances.get(neighbor))
-				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
+				double newCost = distances[current] + weights[neighborEdge];
 
-					// add to priority queue
-					pq.remove(neighbor);
-					for (int i = 0; i < pq.size(); i++)
-					{
-						if (distances.get(neighbor) < distances.get(pq.get(i)))
-						{
-							pq.add(i, neighbor);
-							break;
-						}
-					}
-					if (!pq.contains(neighbor))
-						pq.add(neighbor);
+				if (newCost < distances[neighbor])
+				{
+					// add to the priority queue, or lower its key if it's
+					// already there
+					distances[neighbor] = newCost;
+					if (parentEdges != null)
+						parentEdges[neighbor] = neighborEdge;
+					pq.insertOrDecrease(neighbor, newCost);
 				}
 			}
 		}
-
-		return distances;
-			}
+	}
 
 
 	/**
 	 * Computes the shortest path from a source to a sink in the supplied
 	 * network
 	 *
-	 * @param network
-	 *            the network
+	 * @param graph
+	 *            the snapshot of the network
 	 * @param cyNodeToId
      *            the map that maps CyNode object to its string name
 	 * @param source
-	 *            the source node of the graph
+	 *            the snapshot id of the source node of the graph
 	 * @param target
-	 *            the target node of the graph
+	 *            the snapshot id of the target node of the graph
 	 * @return the path from source to target
 	 */
-	public static PathWay dijkstra(CyNetwork network, Map<CyNode, String> cyNodeToId, CyNode source, CyNode target)
+	public static PathWay dijkstra(GraphSnapshot graph, Map<CyNode, String> cyNodeToId, int source, int target)
 	{
-		final HashMap<CyNode, Double> distances = new HashMap<CyNode, Double>();
-		HashMap<CyNode, CyNode> previous = new HashMap<CyNode, CyNode>();
-		PriorityQueue<CyNode> pq =
-				new PriorityQueue<CyNode>(10, new Comparator<CyNode>() {
-					@Override
-					public int compare(CyNode o1, CyNode o2)
-					{
-						return Double.compare(distances.get(o1), distances.get(o2));
-					}
-				});
+		int[] outOffsets = graph.outOffsets();
+		int[] outEdges = graph.outEdges();
+		int[] edgeTargets = graph.edgeTargets();
+		double[] weights = graph.weights();
+
+		double[] distances = new double[graph.nodeCount()];
+		int[] previous = new int[graph.nodeCount()];
+		IndexedDaryHeap pq = new IndexedDaryHeap(graph.nodeCount());
 
 		// intializes distances
-		for (CyNode v : network.getNodeList())
-		{
-			distances.put(v, INFINITY);
-			previous.put(v, null);
-		}
-		distances.put(source, 0.);
-		pq.add(source);
+		Arrays.fill(distances, INFINITY);
+		Arrays.fill(previous, -1);
+		distances[source] = 0.;
+		pq.insert(source, 0.);
 
 		while (!pq.isEmpty())
 		{
-			CyNode current = pq.poll();
+			int current = pq.poll();
 
 			// short circuit
-			if (current.equals(target))
+			if (current == target)
 			{
 				// return path reconstructed
 				break;
 			}
 
 			// goes through the neighbors
-			for (CyEdge neighborEdge : network
-					.getAdjacentEdgeList(current, CyEdge.Type.OUTGOING))
+			for (int i = outOffsets[current]; i < outOffsets[current + 1]; i++)
 			{
-				CyNode neighbor = neighborEdge.getTarget();
+				int neighborEdge = outEdges[i];
+				int neighbor = edgeTargets[neighborEdge];
 
-				double newCost =
-						distances.get(current) + getWeight(network, neighborEdge);
+				double newCost = distances[current] + weights[neighborEdge];
 
-				if (newCost < distances.get(neighbor))
+				if (newCost < distances[neighbor])
 				{
-					distances.put(neighbor, newCost);
-					previous.put(neighbor, current);
-
-					// add to priority queue
-					pq.remove(neighbor);
-					pq.add(neighbor);
+					// add to the priority queue, or lower its key if it's
+					// already there
+					distances[neighbor] = newCost;
+					previous[neighbor] = current;
+					pq.insertOrDecrease(neighbor, newCost);
 				}
 			}
 		}
 
-		if (isInf(distances.get(target)))
+		if (isInf(distances[target]))
 		{
 			// unreachable node
 			return null;
@@ -732,129 +1349,88 @@ public class Algorithms
 
 		// return constructed path
 		ArrayList<CyNode> nodeList =
-				constructNodeList(previous, source, target);
+				constructNodeList(graph, previous, source, target);
 		if (nodeList == null)
 			return null;
 
-		return new PathWay(nodeList, cyNodeToId, distances.get(target));
-	}
-
-
-	/**
-	 * Initializes our local copy of the edge weights
-	 *
-	 * @param weights
-	 *            a map of the edge to its value
-	 */
-	public static void setEdgeWeights(Map<CyEdge, Double> weights)
-	{
-		_edgeWeights = weights;
-	}
-
-
-	/**
-	 * Returns the weight of an edge in the network
-	 *
-	 * @param network
-	 *            the supplied network
-	 * @param edge
-	 *            the edge to find the weight of
-	 * @return double the weight of the edge. returns a very noticeable and
-	 *         obscure number if the weight is not in the network
-	 */
-	public static double getWeight(CyNetwork network, CyEdge edge)
-	{
-		if (!_edgeWeights.containsKey(edge))
-			return -44444;
-
-		return _edgeWeights.get(edge);
+		return new PathWay(nodeList, cyNodeToId, distances[target]);
 	}
 
 
 	/**
-	 * Sets the weight of an edge in the network. Doesn't actually set the edge
-	 * weight as an attribute, as that takes too much time. Instead, stores the
-	 * edge weight in our copy of the weights local to the algorithm.
-	 *
-	 * @param edge
-	 *            the edge to set the weight of
-	 * @param value
-	 *            the new weight of the edge
-	 */
-	public static void setWeight(CyEdge edge, double value)
-	{
-		_edgeWeights.put(edge, value);
-	}
-
-
-	/**
-	 * Returns an edge that connects source to target if it exists, null
-	 * otherwise
+	 * Finds a path from a source to a sink using a supplied previous node list
 	 *
-	 * @param network
-	 *            the network
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param previous
+	 *            the predecessor of each node, -1 if the node has none
 	 * @param source
-	 *            the source of the edge
+	 *            the snapshot id of the source node of the graph
 	 * @param target
-	 *            the target of the edge
-	 * @return the edge connecting source and target, null otherwise
+	 *            the snapshot id of the target node of the graph
+	 * @return list of nodes in the path
 	 */
-	public static CyEdge getEdge(
-			CyNetwork network,
-			CyNode source,
-			CyNode target)
-	{
-		List<CyEdge> connections =
-				network.getConnectingEdgeList(source, target, CyEdge.Type.DIRECTED);
-
-		// getConnectingEdgeList() returns both the incoming and outgoing edges connected to the two nodes
-		// Using CyEdge.Type.OUTGOING gave strange results in testing, so I stuck with this loop
-		// Use this for loop to get the edge directed from source->target
-		// Currently PathLinker does not support multi-graphs, so just return the first edge found
-		for (CyEdge edge : connections)
-		{
-			if (edge.getSource().equals(source)
-					&& edge.getTarget().equals(target))
+	public static ArrayList<CyNode> constructNodeList(
+			GraphSnapshot graph,
+			int[] previous,
+			int source,
+			int target)
 			{
+		ArrayList<CyNode> nodeList = new ArrayList<CyNode>();
 
-				return edge;
-			}
+		// constructs the path
+		int iter = target;
+		do
+		{
+			nodeList.add(graph.getNode(iter));
+
+			if (previous[iter] == -1)
+				return null;
 		}
+		while ((iter = previous[iter]) != source);
 
-		return null;
-	}
+		nodeList.add(graph.getNode(source));
+		Collections.reverse(nodeList);
+
+		return nodeList;
+			}
 
 
 	/**
-	 * Finds a path from a source to a sink using a supplied previous node list
+	 * Constructs the path from the source to the target from the labels of
+	 * a search
 	 *
-	 * @param previous
-	 *            a map of node predecessors
+	 * @param graph
+	 *            the snapshot of the network
+	 * @param labels
+	 *            the labels of the search, holding the parent of each node
+	 *            reached by the search
 	 * @param source
-	 *            the source node of the graph
+	 *            the snapshot id of the source node of the graph
 	 * @param target
-	 *            the target node of the graph
-	 * @return list of nodes in the path
+	 *            the snapshot id of the target node of the graph
+	 * @return list of nodes in the path, or null if the target was not reached
 	 */
-	public static ArrayList<CyNode> constructNodeList(
-			HashMap<CyNode, CyNode> previous,
-			CyNode source,
-			CyNode target)
+	private static ArrayList<CyNode> constructNodeList(
+			GraphSnapshot graph,
+			SearchLabels labels,
+			int source,
+			int target)
 			{
 		ArrayList<CyNode> nodeList = new ArrayList<CyNode>();
 
 		// constructs the path
-		CyNode iter = target;
+		int iter = target;
 		do
 		{
-			nodeList.add(iter);
+			nodeList.add(graph.getNode(iter));
 
-			if (!previous.containsKey(iter))
+			if (labels.getParent(iter) == -1)
 				return null;
 		}
-		while (!(iter = previous.get(iter)).equals(source));
+		while ((iter = labels.getParent(iter)) != source);
 
-		nodeList.add(source);
+		nodeList.add(graph.getNode(source));
 		Collections.reverse(nodeList);
 
 		return nodeList;
@@ -868,56 +1444,12 @@ public class Algorithms
 	 *            the value to check
 	 * @return true if the value is INFINITY, false otherwise
 	 */
-	private static boolean isInf(double value)
+	static boolean isInf(double value)
 	{
 		return Math.abs(value - INFINITY) < 0.1;
 	}
 
 
-	/**
-	 * Initializes the set of hidden edges. Used to start out the algorithm
-	 * hiding all source in edges and target out edges.
-	 *
-	 * @param edges
-	 *            the initial hidden edges
-	 */
-	public static void initializeHiddenEdges(Set<CyEdge> edges)
-	{
-		initialHiddenEdges = new HashSet<CyEdge>();
-		initialHiddenEdges.addAll(edges);
-
-		hiddenEdges = new HashSet<CyEdge>();
-		hiddenEdges.addAll(edges);
-	}
-
-
-	/**
-	 * Computes the weight of a given path
-	 *
-	 * @param network
-	 *            the supplied network
-	 * @param nodeList
-	 *            the list of nodes that make up the path, in order
-	 */
-	private static double computePathDist(
-			CyNetwork network,
-			ArrayList<CyNode> nodeList)
-	{
-		double sum = 0.;
-
-		for (int i = 0; i < nodeList.size() - 1; i++)
-		{
-			CyNode eSource = nodeList.get(i);
-			CyNode eTarget = nodeList.get(i + 1);
-
-			CyEdge edge = Algorithms.getEdge(network, eSource, eTarget);
-
-			sum += getWeight(network, edge);
-		}
-
-		return sum;
-	}
-
 	/**
 	 * Sort the list of the paths using its custom compareTo method
 	 * @param result the sorted list of pathss
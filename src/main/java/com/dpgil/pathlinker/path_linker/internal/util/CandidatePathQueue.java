@@ -0,0 +1,152 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+
+/**
+ * Candidate set B of Yen's algorithm
+ *      Candidates are kept in buckets of equal weight ordered by weight, with the
+ *      candidates of a bucket polled in insertion order, and indexed by their node
+ *      sequence in a hash set, so adding, deduplicating, polling and evicting a
+ *      candidate never scan the whole set. Tied candidates are accepted in the order
+ *      they were found, as with the stable sort of the former candidate list
+ *
+ * The set can be bounded to the number of paths that can still be accepted.
+ *      Without ties only the best candidates up to the capacity are kept. With ties
+ *      every candidate tied with the worst kept one is kept as well, as any of them
+ *      could be accepted as a tie of the last path
+ */
+public class CandidatePathQueue {
+
+    /** the candidates grouped by weight, each group in insertion order */
+    private final TreeMap<Double, ArrayDeque<PathWay>> buckets = new TreeMap<Double, ArrayDeque<PathWay>>();
+    /** the candidates in the set, hashed by their node sequence */
+    private final Set<PathWay> paths = new HashSet<PathWay>();
+    /** whether candidates tied with the worst kept candidate are kept beyond the capacity */
+    private final boolean keepTies;
+    /** the maximum number of candidates to keep, not counting ties */
+    private int capacity = Integer.MAX_VALUE;
+    /** the number of nodes of the candidates in the set */
+    private long nodeCount;
+
+    /**
+     * Constructor of the candidate set
+     * @param keepTies whether candidates tied with the worst kept candidate are kept beyond the capacity
+     */
+    public CandidatePathQueue(boolean keepTies) {
+        this.keepTies = keepTies;
+    }
+
+    /**
+     * Sets the maximum number of candidates to keep, and evicts the worst candidates beyond it
+     * @param capacity the maximum number of candidates to keep, at least 1
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Candidate capacity must be at least 1");
+
+        this.capacity = capacity;
+        evict();
+    }
+
+    /**
+     * Adds a candidate path unless the same path is already a candidate
+     *      the worst candidates beyond the capacity are evicted afterwards,
+     *      which may be the added path itself
+     * @param path the candidate path
+     * @return true if the path was added, otherwise false
+     */
+    public boolean add(PathWay path) {
+        if (!paths.add(path))
+            return false;
+
+        ArrayDeque<PathWay> bucket = buckets.get(path.weight);
+        if (bucket == null) {
+            bucket = new ArrayDeque<PathWay>();
+            buckets.put(path.weight, bucket);
+        }
+        bucket.addLast(path);
+        nodeCount += path.size();
+
+        evict();
+        return true;
+    }
+
+    /**
+     * Removes and returns the candidate with the smallest weight
+     *      among candidates of equal weight the one added first is returned
+     * @return the shortest candidate path, or null if there is no candidate
+     */
+    public PathWay poll() {
+        Map.Entry<Double, ArrayDeque<PathWay>> first = buckets.firstEntry();
+        if (first == null)
+            return null;
+
+        PathWay path = first.getValue().pollFirst();
+        if (first.getValue().isEmpty())
+            buckets.remove(first.getKey());
+
+        paths.remove(path);
+        nodeCount -= path.size();
+        return path;
+    }
+
+    /**
+     * Getter method of the number of candidates
+     * @return number of candidate paths
+     */
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * Getter method of the number of nodes of the candidates
+     * @return the number of nodes of the candidate paths, counted once per path they are on
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Check if there is no candidate
+     * @return true if there is no candidate path, otherwise false
+     */
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    /**
+     * Evicts the worst candidates until the set fits the capacity
+     *      without ties the candidate added last among the heaviest ones is evicted first,
+     *      as it is the one that would be polled last. With ties the heaviest bucket is
+     *      only evicted as a whole, once the lighter buckets hold enough candidates
+     */
+    private void evict() {
+        while (paths.size() > capacity) {
+            Map.Entry<Double, ArrayDeque<PathWay>> last = buckets.lastEntry();
+            ArrayDeque<PathWay> bucket = last.getValue();
+
+            if (keepTies) {
+                if (paths.size() - bucket.size() < capacity)
+                    return;
+
+                for (PathWay path : bucket)
+                    nodeCount -= path.size();
+
+                paths.removeAll(bucket);
+                buckets.remove(last.getKey());
+            } else {
+                PathWay path = bucket.pollLast();
+                nodeCount -= path.size();
+                paths.remove(path);
+                if (bucket.isEmpty())
+                    buckets.remove(last.getKey());
+            }
+        }
+    }
+}
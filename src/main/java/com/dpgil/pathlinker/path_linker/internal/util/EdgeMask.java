@@ -0,0 +1,54 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of GraphSnapshot edge ids backed by a generation-stamped int array
+ *      An edge is in the set when its stamp equals the current generation, so
+ *      testing and adding an edge are O(1) array accesses, and clearing the set
+ *      only advances the generation instead of touching every hidden edge
+ */
+public class EdgeMask {
+
+    /** the generation in which each edge was last added */
+    private final int[] stamps;
+    /** the current generation, edges stamped with any other value are not in the set */
+    private int generation = 1;
+
+    /**
+     * Constructor of an empty mask
+     * @param edgeCount the number of edges in the snapshot
+     */
+    public EdgeMask(int edgeCount) {
+        this.stamps = new int[edgeCount];
+    }
+
+    /**
+     * Check if an edge is in the mask
+     * @param edge the snapshot id of the edge
+     * @return true if the edge was added since the last clear, otherwise false
+     */
+    public boolean contains(int edge) {
+        return stamps[edge] == generation;
+    }
+
+    /**
+     * Adds an edge to the mask
+     * @param edge the snapshot id of the edge
+     */
+    public void add(int edge) {
+        stamps[edge] = generation;
+    }
+
+    /**
+     * Removes every edge from the mask in O(1)
+     *      the stamps are only rewritten when the generation counter overflows
+     */
+    public void clear() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        } else
+            generation++;
+    }
+}
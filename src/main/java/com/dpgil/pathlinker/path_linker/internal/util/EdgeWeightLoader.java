@@ -0,0 +1,144 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+
+/**
+ * Bulk loader of the edge weights of a network
+ *      Reads the key and the weight of every edge from the same row in one pass over the
+ *      rows of the edge table, instead of looking up and parsing the row of each edge, and
+ *      stores the weights in a double array aligned with a given edge list. The key and the
+ *      weight column are not read as two separate value lists, as CyTable doesn't promise
+ *      that those lists share a row order. The edges without a weight are counted in the
+ *      same pass, so checking the weights costs no second read of the table
+ */
+public class EdgeWeightLoader {
+
+    /** the weight of an edge without a value, the very noticeable and obscure value of Algorithms */
+    public static final double MISSING_WEIGHT = -44444;
+
+    /** the weight of each edge, in the order of the edge list */
+    private final double[] weights;
+    /** the number of edges without a weight */
+    private final int missingCount;
+
+    /**
+     * Constructor of the loaded weights
+     * @param weights      the weight of each edge, in the order of the edge list
+     * @param missingCount the number of edges without a weight
+     */
+    private EdgeWeightLoader(double[] weights, int missingCount) {
+        this.weights = weights;
+        this.missingCount = missingCount;
+    }
+
+    /**
+     * Loads the weights of a list of edges from a column of the edge table
+     *      Double, Integer, Long and Float columns are read as numbers, the values of any
+     *      other column are parsed from their text. An edge without a row, a null value,
+     *      or a value that is not a number is missing and gets MISSING_WEIGHT
+     * @param network    the network whose default edge table holds the weights
+     * @param edges      the edges to load the weights of
+     * @param columnName the name of the edge weight column
+     * @return the loaded weights, all missing if the column does not exist
+     */
+    public static EdgeWeightLoader load(CyNetwork network, List<CyEdge> edges, String columnName) {
+        double[] weights = new double[edges.size()];
+        BitSet found = new BitSet(edges.size());
+
+        CyTable table = network.getDefaultEdgeTable();
+        CyColumn column = columnName != null ? table.getColumn(columnName) : null;
+        if (column != null) {
+            Map<Long, Integer> positions = new HashMap<Long, Integer>(edges.size() * 2);
+            for (int i = 0; i < edges.size(); i++)
+                positions.put(edges.get(i).getSUID(), i);
+
+            // the table may hold rows of edges that are not in the list, like the
+            // rows of a shared table, which are skipped
+            String keyName = table.getPrimaryKey().getName();
+            Class<?> type = column.getType();
+            boolean numeric = type == Double.class || type == Integer.class
+                    || type == Long.class || type == Float.class;
+
+            for (CyRow row : table.getAllRows()) {
+                Integer position = positions.get(row.get(keyName, Long.class));
+                if (position == null)
+                    continue;
+
+                Double value = numeric ? toWeight(row.get(columnName, type)) : parseWeight(row.getRaw(columnName));
+                if (value != null) {
+                    weights[position] = value;
+                    found.set(position);
+                }
+            }
+        }
+
+        int missingCount = 0;
+        for (int i = found.nextClearBit(0); i < weights.length; i = found.nextClearBit(i + 1)) {
+            weights[i] = MISSING_WEIGHT;
+            missingCount++;
+        }
+
+        return new EdgeWeightLoader(weights, missingCount);
+    }
+
+    /**
+     * Converts a value of a numeric weight column to a weight
+     * @param value the value of the column
+     * @return the weight, or null if the value is null
+     */
+    private static Double toWeight(Object value) {
+        return value != null ? ((Number) value).doubleValue() : null;
+    }
+
+    /**
+     * Converts a value of the weight column to a weight
+     * @param value the value of the column
+     * @return the weight, or null if the value is null or not a number
+     */
+    private static Double parseWeight(Object value) {
+        if (value == null)
+            return null;
+
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Getter method of the weights
+     * @return the weight of each edge in the order of the edge list, MISSING_WEIGHT for missing ones
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Getter method of the number of missing weights
+     * @return number of edges without a weight
+     */
+    public int getMissingCount() {
+        return missingCount;
+    }
+
+    /**
+     * Check if any edge has no weight
+     * @return true if at least one edge has no weight, otherwise false
+     */
+    public boolean hasMissingValues() {
+        return missingCount > 0;
+    }
+}
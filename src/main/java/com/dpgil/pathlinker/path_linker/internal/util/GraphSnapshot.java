@@ -0,0 +1,355 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyNode;
+
+/**
+ * Read-only compressed sparse row (CSR) snapshot of the network the KSP algorithm runs on
+ *      Nodes and edges are given dense int ids, and the adjacency and edge weights are stored
+ *      in flat arrays so the searches in Algorithms never query the CyNetwork
+ *      or hash CyNode objects while expanding nodes
+ *
+ * The snapshot treats every edge as directed from its source to its target,
+ *      which holds for the bi-directed edges of the network built by PathLinkerModel
+ *
+ * A snapshot may also hold a virtual super source attached to the sources and a virtual
+ *      super target attached to the targets by edges of weight 0. They only exist in the
+ *      snapshot, so the network is never modified to run the algorithm. The virtual nodes
+ *      have no CyNode and stand as null in the paths built from the snapshot
+ */
+public class GraphSnapshot {
+
+    /** the nodes of the network indexed by their snapshot id */
+    private final CyNode[] nodes;
+    /** maps each node to its snapshot id */
+    private final Map<CyNode, Integer> nodeIds;
+    /** the snapshot id of the source node of each edge */
+    private final int[] edgeSources;
+    /** the snapshot id of the target node of each edge */
+    private final int[] edgeTargets;
+    /** the weight of each edge */
+    private final double[] weights;
+    /** the outgoing edges of node i are outEdges[outOffsets[i]] to outEdges[outOffsets[i + 1] - 1] */
+    private final int[] outOffsets;
+    /** the edge ids grouped by source node */
+    private final int[] outEdges;
+    /** the incoming edges of node i are inEdges[inOffsets[i]] to inEdges[inOffsets[i + 1] - 1] */
+    private final int[] inOffsets;
+    /** the edge ids grouped by target node */
+    private final int[] inEdges;
+    /** open addressing table of the packed (source, target) key of each edge, EMPTY_KEY for a free slot */
+    private final long[] edgeKeys;
+    /** the snapshot id of the edge whose key is in the same slot of edgeKeys */
+    private final int[] edgeSlots;
+
+    /** the snapshot id of the virtual super source, -1 if the snapshot has none */
+    private final int superSourceId;
+    /** the snapshot id of the virtual super target, -1 if the snapshot has none */
+    private final int superTargetId;
+
+    /** the key of a free slot in edgeKeys, packed keys of node ids are never negative */
+    private static final long EMPTY_KEY = -1L;
+
+    /**
+     * Builds the snapshot of a network given by its nodes and edges, with a virtual
+     *      super source and super target. The super source gets id nodeCount() - 2
+     *      and the super target nodeCount() - 1, and their edges come after the
+     *      edges of the network, so the ids of the given nodes and edges are kept
+     * @param nodeList    the nodes of the network, the snapshot id of a node is its position in the list
+     * @param edgeSources the position in nodeList of the source node of each edge
+     * @param edgeTargets the position in nodeList of the target node of each edge
+     * @param edgeWeights the weight of each edge
+     * @param sources     the nodes attached to the super source, null for a snapshot without super nodes
+     * @param targets     the nodes attached to the super target, null for a snapshot without super nodes
+     */
+    public GraphSnapshot(List<CyNode> nodeList, int[] edgeSources, int[] edgeTargets, double[] edgeWeights,
+            List<CyNode> sources, List<CyNode> targets) {
+        boolean superNodes = sources != null && targets != null;
+        int networkNodes = nodeList.size();
+        int networkEdges = edgeSources.length;
+
+        nodes = nodeList.toArray(new CyNode[superNodes ? networkNodes + 2 : networkNodes]);
+        nodeIds = new HashMap<CyNode, Integer>(networkNodes * 2);
+        for (int i = 0; i < networkNodes; i++)
+            nodeIds.put(nodes[i], i);
+
+        superSourceId = superNodes ? networkNodes : -1;
+        superTargetId = superNodes ? networkNodes + 1 : -1;
+
+        int edgeCount = superNodes ? networkEdges + sources.size() + targets.size() : networkEdges;
+        this.edgeSources = Arrays.copyOf(edgeSources, edgeCount);
+        this.edgeTargets = Arrays.copyOf(edgeTargets, edgeCount);
+        this.weights = Arrays.copyOf(edgeWeights, edgeCount);
+
+        // the edges of the super nodes have a weight of 0, so they don't
+        // affect the final path weights
+        if (superNodes) {
+            int e = networkEdges;
+            for (CyNode source : sources) {
+                this.edgeSources[e] = superSourceId;
+                this.edgeTargets[e++] = nodeIds.get(source);
+            }
+            for (CyNode target : targets) {
+                this.edgeSources[e] = nodeIds.get(target);
+                this.edgeTargets[e++] = superTargetId;
+            }
+        }
+
+        outOffsets = new int[nodes.length + 1];
+        outEdges = new int[edgeCount];
+        buildAdjacency(this.edgeSources, outOffsets, outEdges);
+
+        inOffsets = new int[nodes.length + 1];
+        inEdges = new int[edgeCount];
+        buildAdjacency(this.edgeTargets, inOffsets, inEdges);
+
+        // a power of two capacity of at least twice the number of edges keeps
+        // the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, edgeCount) * 2 - 1) << 1;
+        edgeKeys = new long[capacity];
+        edgeSlots = new int[capacity];
+        Arrays.fill(edgeKeys, EMPTY_KEY);
+        for (int e = 0; e < edgeCount; e++) {
+            long key = packEdgeKey(this.edgeSources[e], this.edgeTargets[e]);
+            int slot = slotOf(key);
+            while (edgeKeys[slot] != EMPTY_KEY && edgeKeys[slot] != key)
+                slot = (slot + 1) & (capacity - 1);
+
+            // keeps the first edge of a multi-edge, as the edge list order does
+            if (edgeKeys[slot] == EMPTY_KEY) {
+                edgeKeys[slot] = key;
+                edgeSlots[slot] = e;
+            }
+        }
+    }
+
+    /**
+     * Packs the snapshot ids of the endpoints of an edge into a single key
+     * @param source the snapshot id of the source node
+     * @param target the snapshot id of the target node
+     * @return the key of the edge
+     */
+    static long packEdgeKey(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Finds the first slot of the probe sequence of a key
+     * @param key the packed key of an edge
+     * @return the home slot of the key in edgeKeys
+     */
+    private int slotOf(long key) {
+        return slotOf(key, edgeKeys.length - 1);
+    }
+
+    /**
+     * Finds the first slot of the probe sequence of a key in a table with a power of two capacity
+     * @param key  the packed key of an edge
+     * @param mask the capacity of the table minus one
+     * @return the home slot of the key
+     */
+    static int slotOf(long key, int mask) {
+        // spreads the bits of both node ids over the low bits used as the slot
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Groups the edge ids by the given endpoint with a counting sort
+     *      the edges of each node keep the order of their ids
+     * @param endpoints the endpoint of each edge to group the edges by
+     * @param offsets   the offset array to fill, of size number of nodes + 1
+     * @param adjacency the adjacency array to fill, of size number of edges
+     */
+    private static void buildAdjacency(int[] endpoints, int[] offsets, int[] adjacency) {
+        for (int e = 0; e < endpoints.length; e++)
+            offsets[endpoints[e] + 1]++;
+
+        for (int i = 1; i < offsets.length; i++)
+            offsets[i] += offsets[i - 1];
+
+        int[] next = new int[offsets.length - 1];
+        System.arraycopy(offsets, 0, next, 0, next.length);
+
+        for (int e = 0; e < endpoints.length; e++)
+            adjacency[next[endpoints[e]]++] = e;
+    }
+
+    /**
+     * Getter method of the number of nodes
+     * @return number of nodes in the snapshot
+     */
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Getter method of the number of edges
+     * @return number of edges in the snapshot
+     */
+    public int edgeCount() {
+        return edgeSources.length;
+    }
+
+    /**
+     * Getter method of a node by its snapshot id
+     * @param id the snapshot id of the node
+     * @return the node, or null for a virtual super node
+     */
+    public CyNode getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Getter method of the snapshot id of a node
+     * @param node the node
+     * @return the snapshot id of the node, or -1 if the node is not in the snapshot
+     */
+    public int getNodeId(CyNode node) {
+        Integer id = nodeIds.get(node);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Getter method of the snapshot id of a node of a path built from the snapshot
+     *      the virtual super nodes stand as null in a path, and can only be at its ends
+     *      as the super source has no incoming edges and the super target no outgoing edges
+     * @param path  the nodes of the path, in order
+     * @param index the position of the node in the path
+     * @return the snapshot id of the node, or -1 if the node is not in the snapshot
+     */
+    public int getNodeId(List<CyNode> path, int index) {
+        CyNode node = path.get(index);
+        if (node != null)
+            return getNodeId(node);
+
+        return index == 0 ? superSourceId : superTargetId;
+    }
+
+    /**
+     * Getter method of the virtual super source
+     * @return the snapshot id of the super source, or -1 if the snapshot has none
+     */
+    public int getSuperSourceId() {
+        return superSourceId;
+    }
+
+    /**
+     * Getter method of the virtual super target
+     * @return the snapshot id of the super target, or -1 if the snapshot has none
+     */
+    public int getSuperTargetId() {
+        return superTargetId;
+    }
+
+    /**
+     * Getter method of the source node of an edge
+     * @param edge the snapshot id of the edge
+     * @return the snapshot id of the source node
+     */
+    public int getSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    /**
+     * Getter method of the target node of an edge
+     * @param edge the snapshot id of the edge
+     * @return the snapshot id of the target node
+     */
+    public int getTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * Getter method of the weight of an edge
+     * @param edge the snapshot id of the edge
+     * @return the weight of the edge
+     */
+    public double getWeight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the edge directed from source to target in expected O(1)
+     *      PathLinker does not support multi-graphs, so the first edge found is returned
+     * @param source the snapshot id of the source node
+     * @param target the snapshot id of the target node
+     * @return the snapshot id of the edge, or -1 if there is no such edge
+     */
+    public int findEdge(int source, int target) {
+        long key = packEdgeKey(source, target);
+        for (int slot = slotOf(key); edgeKeys[slot] != EMPTY_KEY; slot = (slot + 1) & (edgeKeys.length - 1)) {
+            if (edgeKeys[slot] == key)
+                return edgeSlots[slot];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Offsets into outEdges(), indexed by node id
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the outgoing offset array
+     */
+    int[] outOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * Edge ids grouped by source node
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the outgoing adjacency array
+     */
+    int[] outEdges() {
+        return outEdges;
+    }
+
+    /**
+     * Offsets into inEdges(), indexed by node id
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the incoming offset array
+     */
+    int[] inOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Edge ids grouped by target node
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the incoming adjacency array
+     */
+    int[] inEdges() {
+        return inEdges;
+    }
+
+    /**
+     * The source node id of each edge
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the edge source array
+     */
+    int[] edgeSources() {
+        return edgeSources;
+    }
+
+    /**
+     * The target node id of each edge
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the edge target array
+     */
+    int[] edgeTargets() {
+        return edgeTargets;
+    }
+
+    /**
+     * The weight of each edge
+     *      the returned array is shared with the snapshot and must not be modified
+     * @return the edge weight array
+     */
+    double[] weights() {
+        return weights;
+    }
+}
@@ -0,0 +1,234 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Position-indexed d-ary min-heap of int keys with double priorities
+ *      Keys are dense ids in the range [0, capacity), such as GraphSnapshot node ids.
+ *      The position of every key in the heap is tracked so decrease-key is O(log n)
+ *      instead of the O(n) remove and re-add needed with java.util.PriorityQueue,
+ *      and priorities are stored in a primitive array so sifting never boxes a value
+ */
+public class IndexedDaryHeap {
+
+    /** default number of children per heap node */
+    public static final int DEFAULT_ARITY = 4;
+
+    /** number of children per heap node */
+    private final int arity;
+    /** the keys in heap order */
+    private final int[] heap;
+    /** the position of each key in the heap, -1 if the key is not in the heap */
+    private final int[] positions;
+    /** the priority of each key */
+    private final double[] priorities;
+    /** number of keys in the heap */
+    private int size;
+
+    /**
+     * Constructor of a heap with the default arity
+     * @param capacity the number of possible keys
+     */
+    public IndexedDaryHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Constructor of the heap
+     * @param capacity the number of possible keys
+     * @param arity    the number of children per heap node, at least 2
+     */
+    public IndexedDaryHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.priorities = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Getter method of the number of keys in the heap
+     * @return number of keys in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the heap is empty
+     * @return true if the heap is empty, otherwise false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if a key is in the heap
+     * @param key the key
+     * @return true if the key is in the heap, otherwise false
+     */
+    public boolean contains(int key) {
+        return positions[key] != -1;
+    }
+
+    /**
+     * Getter method of the priority of a key in the heap
+     * @param key the key
+     * @return the priority of the key
+     */
+    public double getPriority(int key) {
+        return priorities[key];
+    }
+
+    /**
+     * Inserts a key that is not in the heap
+     * @param key      the key
+     * @param priority the priority of the key
+     */
+    public void insert(int key, double priority) {
+        if (positions[key] != -1)
+            throw new IllegalStateException("Key " + key + " is already in the heap");
+
+        priorities[key] = priority;
+        heap[size] = key;
+        positions[key] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the priority of a key in the heap
+     * @param key      the key
+     * @param priority the new priority, must not be greater than the current one
+     */
+    public void decreaseKey(int key, double priority) {
+        if (priority > priorities[key])
+            throw new IllegalArgumentException("Cannot increase the priority of key " + key);
+
+        priorities[key] = priority;
+        siftUp(positions[key]);
+    }
+
+    /**
+     * Inserts a key, or lowers its priority if it is already in the heap
+     *      and the given priority is smaller than the current one
+     * @param key      the key
+     * @param priority the priority of the key
+     * @return true if the heap changed, otherwise false
+     */
+    public boolean insertOrDecrease(int key, double priority) {
+        if (positions[key] == -1) {
+            insert(key, priority);
+            return true;
+        }
+
+        if (priority < priorities[key]) {
+            decreaseKey(key, priority);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the key with the smallest priority without removing it
+     * @return the key with the smallest priority
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the key with the smallest priority
+     * @return the key with the smallest priority
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        int min = heap[0];
+        positions[min] = -1;
+
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    /**
+     * Removes every key from the heap. Runs in time proportional to the number
+     *      of keys left in the heap, so a heap can be reused across searches
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = -1;
+
+        size = 0;
+    }
+
+    /**
+     * Moves the key at the given position up until its parent has a smaller or equal priority
+     * @param pos the heap position
+     */
+    private void siftUp(int pos) {
+        int key = heap[pos];
+        double priority = priorities[key];
+
+        while (pos > 0) {
+            int parentPos = (pos - 1) / arity;
+            int parent = heap[parentPos];
+
+            if (priorities[parent] <= priority)
+                break;
+
+            heap[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+
+        heap[pos] = key;
+        positions[key] = pos;
+    }
+
+    /**
+     * Moves the key at the given position down until all its children have a greater or equal priority
+     * @param pos the heap position
+     */
+    private void siftDown(int pos) {
+        int key = heap[pos];
+        double priority = priorities[key];
+
+        while (true) {
+            int firstChild = pos * arity + 1;
+            if (firstChild >= size)
+                break;
+
+            // finds the child with the smallest priority
+            int lastChild = Math.min(firstChild + arity, size);
+            int minPos = firstChild;
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                if (priorities[heap[c]] < priorities[heap[minPos]])
+                    minPos = c;
+            }
+
+            if (priority <= priorities[heap[minPos]])
+                break;
+
+            heap[pos] = heap[minPos];
+            positions[heap[pos]] = pos;
+            pos = minPos;
+        }
+
+        heap[pos] = key;
+        positions[key] = pos;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+/**
+ * Setting of the k shortest paths algorithm selected by the user
+ * Used by PathLinkerModel class and PathLinkerModelParams class
+ */
+public enum KSPAlgorithm {
+
+	/**
+	 * Yen's algorithm with A* spur searches, see Algorithms.ksp
+	 */
+	YEN,
+
+	/**
+	 * Yen's algorithm which only resolves the deviations that can yield one of
+	 * the k shortest paths, most of them along the shortest path tree to the
+	 * target without a spur search, see LazyYenKSP.ksp
+	 */
+	LAZY_YEN
+}
\ No newline at end of file
@@ -0,0 +1,326 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.cytoscape.model.CyNode;
+
+/**
+ * Holds all the mutable state of a single run of the KSP algorithm
+ *      Each call to Algorithms.ksp works on its own context, so concurrent
+ *      PathLinker runs never share hidden edges or edge weights
+ */
+public class KSPContext {
+
+    /** estimated bytes of a candidate path besides its nodes: the path, its node list and its entries in the candidate set */
+    public static final long CANDIDATE_PATH_BYTES = 96;
+    /** estimated bytes of each node of a candidate path */
+    public static final long CANDIDATE_NODE_BYTES = 12;
+
+    /** the snapshot of the network the algorithm runs on */
+    private final GraphSnapshot graph;
+    /** the map that maps CyNode object to its string name */
+    private final Map<CyNode, String> cyNodeToId;
+    /** snapshot ids of the edges hidden for the whole run, i.e. incoming source and outgoing target edges */
+    private final BitSet initialHiddenEdges;
+    /** edges hidden in addition to the initial hidden edges until the next reset */
+    private final EdgeMask hiddenEdges;
+    /** pool used to compute the spur paths of each iteration in parallel, null to compute them serially */
+    private ForkJoinPool spurSearchPool;
+    /** whether spur searches run the bidirectional A* search instead of the forward one */
+    private boolean bidirectionalSpurSearch;
+    /** the landmark index bounding the distances to the target, null to compute them exactly */
+    private LandmarkIndex landmarkIndex;
+    /** the distances to the target shared by the runs on the same target set, null to compute them for this run */
+    private TargetDistances targetDistances;
+    /** the labels of the forward spur searches, created on first use and reused by every search */
+    private SearchLabels searchLabels;
+    /** the labels of the backward half of the bidirectional spur searches */
+    private SearchLabels backwardSearchLabels;
+    /** whether the run was cancelled, shared with the contexts of the parallel spur searches */
+    private final AtomicBoolean cancelled;
+    /** the System.nanoTime after which the run is cancelled, only used when hasDeadline is set */
+    private long deadline;
+    /** whether the run has a deadline */
+    private boolean hasDeadline;
+    /** the maximum number of candidate paths the engine may keep, null for no limit */
+    private Integer maxCandidatePaths;
+    /** the maximum estimated bytes of the candidate paths the engine may keep, null for no limit */
+    private Long maxCandidateBytes;
+    /** the contexts of the parallel spur searches, reused across iterations */
+    private final List<KSPContext> spurContexts = new ArrayList<KSPContext>();
+
+    /**
+     * Constructor of the context
+     * @param graph              the snapshot of the network the algorithm runs on
+     * @param cyNodeToId         the map that maps CyNode object to its string name
+     * @param initialHiddenEdges the snapshot ids of the edges hidden from the algorithm for the whole run
+     */
+    public KSPContext(GraphSnapshot graph, Map<CyNode, String> cyNodeToId, BitSet initialHiddenEdges) {
+        this(graph, cyNodeToId, (BitSet) initialHiddenEdges.clone(), new AtomicBoolean());
+    }
+
+    /**
+     * Constructor used to share the read-only state of a context
+     * @param graph              the snapshot of the network the algorithm runs on
+     * @param cyNodeToId         the map that maps CyNode object to its string name
+     * @param initialHiddenEdges the snapshot ids of the edges hidden for the whole run
+     * @param cancelled          the cancellation flag of the run
+     */
+    private KSPContext(GraphSnapshot graph, Map<CyNode, String> cyNodeToId, BitSet initialHiddenEdges,
+            AtomicBoolean cancelled) {
+        this.graph = graph;
+        this.cyNodeToId = cyNodeToId;
+        this.initialHiddenEdges = initialHiddenEdges;
+        this.cancelled = cancelled;
+        this.hiddenEdges = new EdgeMask(graph.edgeCount());
+    }
+
+    /**
+     * Getter method of the context of a parallel spur search
+     *      the context shares the snapshot and initial hidden edges of this context
+     *      but has its own hidden edges, so the spur search can run on another thread.
+     *      Contexts are created on first use and reused in later iterations
+     * @param index the position of the spur node in the latest accepted path
+     * @return the spur search context with only the initial edges hidden
+     */
+    public KSPContext getSpurContext(int index) {
+        while (spurContexts.size() <= index)
+            spurContexts.add(new KSPContext(graph, cyNodeToId, initialHiddenEdges, cancelled));
+
+        KSPContext spurContext = spurContexts.get(index);
+        spurContext.resetHiddenEdges();
+        spurContext.setBidirectionalSpurSearch(bidirectionalSpurSearch);
+        spurContext.deadline = deadline;
+        spurContext.hasDeadline = hasDeadline;
+        return spurContext;
+    }
+
+    /**
+     * Getter method of the spur search pool
+     * @return the pool used to compute spur paths in parallel, null if they are computed serially
+     */
+    public ForkJoinPool getSpurSearchPool() {
+        return spurSearchPool;
+    }
+
+    /**
+     * Setter method of the spur search pool
+     *      the ranked output is the same whether spur paths are computed serially or in parallel
+     * @param spurSearchPool the pool used to compute spur paths in parallel, null to compute them serially
+     */
+    public void setSpurSearchPool(ForkJoinPool spurSearchPool) {
+        this.spurSearchPool = spurSearchPool;
+    }
+
+    /**
+     * Getter method of the bidirectional spur search option
+     * @return true if spur searches run the bidirectional A* search, otherwise false
+     */
+    public boolean isBidirectionalSpurSearch() {
+        return bidirectionalSpurSearch;
+    }
+
+    /**
+     * Setter method of the bidirectional spur search option
+     * @param bidirectionalSpurSearch true to run the bidirectional A* search in spur searches,
+     *                                false to run the forward A* search
+     */
+    public void setBidirectionalSpurSearch(boolean bidirectionalSpurSearch) {
+        this.bidirectionalSpurSearch = bidirectionalSpurSearch;
+    }
+
+    /**
+     * Cancels the run, the KSP engines stop before their next spur search
+     *      and yield no further path. Can be called from any thread
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Check if the run was cancelled
+     *      a run whose deadline passed is cancelled by the first check that sees it
+     * @return true if the run or any context sharing its state was cancelled, otherwise false
+     */
+    public boolean isCancelled() {
+        if (cancelled.get())
+            return true;
+
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            cancelled.set(true);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if the run was stopped by a cancellation, or by a check that saw the deadline pass
+     *      unlike isCancelled, doesn't check the deadline, so a run that ended on its own
+     *      after its deadline isn't reported as stopped
+     * @return true if the run was stopped, otherwise false
+     */
+    public boolean wasStopped() {
+        return cancelled.get();
+    }
+
+    /**
+     * Sets a deadline after which the run is cancelled
+     * @param deadline the System.nanoTime value after which the run is cancelled
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Sets the limits on the candidates the engine keeps, past which the run is stopped
+     * @param maxCandidatePaths the maximum number of candidate paths, null for no limit
+     * @param maxCandidateBytes the maximum estimated bytes of the candidate paths, null for no limit
+     */
+    public void setCandidateLimits(Integer maxCandidatePaths, Long maxCandidateBytes) {
+        this.maxCandidatePaths = maxCandidatePaths;
+        this.maxCandidateBytes = maxCandidateBytes;
+    }
+
+    /**
+     * Checks the candidates of the engine against the limits of the run, and stops the run
+     *      as its deadline would once they outgrow a limit. Called by the engines each time
+     *      their candidates grow, so a run stops within an iteration, not only between paths
+     * @param candidateCount the number of candidate paths the engine keeps
+     * @param candidateNodes the number of nodes of the candidate paths the engine keeps
+     * @return true if a limit is exceeded and the run is stopped, otherwise false
+     */
+    public boolean checkCandidateLimits(int candidateCount, long candidateNodes) {
+        if ((maxCandidatePaths != null && candidateCount > maxCandidatePaths)
+                || (maxCandidateBytes != null && estimateCandidateBytes(candidateCount, candidateNodes) > maxCandidateBytes)) {
+            cancelled.set(true);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Estimates the memory taken by candidate paths from their number and their nodes
+     *      as 96 bytes per path plus 12 bytes per node, an approximation of the objects the
+     *      engines keep per candidate, not a measure of the heap, so other runs and the rest
+     *      of Cytoscape don't count against it
+     * @param candidateCount the number of candidate paths
+     * @param candidateNodes the number of nodes of the candidate paths
+     * @return the estimated number of bytes
+     */
+    public static long estimateCandidateBytes(int candidateCount, long candidateNodes) {
+        return candidateCount * CANDIDATE_PATH_BYTES + candidateNodes * CANDIDATE_NODE_BYTES;
+    }
+
+    /**
+     * Getter method of the landmark index
+     * @return the landmark index bounding the distances to the target, null if they are computed exactly
+     */
+    public LandmarkIndex getLandmarkIndex() {
+        return landmarkIndex;
+    }
+
+    /**
+     * Setter method of the landmark index
+     * @param landmarkIndex the landmark index of the snapshot's network, null to compute
+     *                      the distances to the target with a reverse Dijkstra search
+     */
+    public void setLandmarkIndex(LandmarkIndex landmarkIndex) {
+        this.landmarkIndex = landmarkIndex;
+    }
+
+    /**
+     * Getter method of the target distances
+     * @return the distances to the target shared with other runs, null if they are computed for this run
+     */
+    public TargetDistances getTargetDistances() {
+        return targetDistances;
+    }
+
+    /**
+     * Setter method of the target distances
+     * @param targetDistances the distances to the target set of the run, shared with the
+     *                        other runs on the same network and target set, null to compute
+     *                        the distances with a reverse Dijkstra search for this run only
+     */
+    public void setTargetDistances(TargetDistances targetDistances) {
+        this.targetDistances = targetDistances;
+    }
+
+    /**
+     * Getter method of the labels of a forward search
+     *      the labels are shared by every search run on this context,
+     *      so a context only runs one search at a time
+     * @return the labels of the snapshot's nodes, reset for a new search
+     */
+    public SearchLabels getSearchLabels() {
+        if (searchLabels == null)
+            searchLabels = new SearchLabels(graph.nodeCount());
+        else
+            searchLabels.reset();
+
+        return searchLabels;
+    }
+
+    /**
+     * Getter method of the labels of the backward half of a bidirectional search
+     * @return the labels of the snapshot's nodes, reset for a new search
+     */
+    public SearchLabels getBackwardSearchLabels() {
+        if (backwardSearchLabels == null)
+            backwardSearchLabels = new SearchLabels(graph.nodeCount());
+        else
+            backwardSearchLabels.reset();
+
+        return backwardSearchLabels;
+    }
+
+    /**
+     * Getter method of the graph snapshot
+     * @return the snapshot of the network the algorithm runs on
+     */
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    /**
+     * Getter method of cyNodeToId
+     * @return the map that maps CyNode object to its string name
+     */
+    public Map<CyNode, String> getCyNodeToId() {
+        return cyNodeToId;
+    }
+
+    /**
+     * Check if an edge is hidden from the searches
+     * @param edge the snapshot id of the edge
+     * @return true if the edge is hidden, otherwise false
+     */
+    public boolean isHidden(int edge) {
+        return initialHiddenEdges.get(edge) || hiddenEdges.contains(edge);
+    }
+
+    /**
+     * Hides an edge from the searches until the hidden edges are reset
+     * @param edge the snapshot id of the edge
+     */
+    public void hideEdge(int edge) {
+        hiddenEdges.add(edge);
+    }
+
+    /**
+     * "Resets" hidden edges, by changing the hidden edges to what they were
+     * initialized to. The initial hidden edges are kept apart from the others,
+     * so they are never copied, and clearing the others is O(1)
+     */
+    public void resetHiddenEdges() {
+        hiddenEdges.clear();
+    }
+}
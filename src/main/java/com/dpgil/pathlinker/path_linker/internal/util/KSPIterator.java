@@ -0,0 +1,19 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Iterator;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+
+/**
+ * Iterator over the k shortest paths of a KSP engine, in the order the engine accepts them
+ *      Also exposes the size of the candidate set of the engine, so the progress of a run
+ *      can be reported while it is consumed
+ */
+public interface KSPIterator extends Iterator<PathWay> {
+
+    /**
+     * Getter method of the number of candidates
+     * @return the number of candidate paths the engine currently keeps
+     */
+    int getCandidateCount();
+}
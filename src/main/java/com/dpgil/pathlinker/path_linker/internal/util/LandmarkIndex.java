@@ -0,0 +1,227 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cytoscape.model.CyNode;
+
+/**
+ * Landmark index (A*, Landmarks, Triangle inequality) of a network
+ *      Stores the distances from and to a few landmark nodes, so a lower bound on the
+ *      distance from any node to a set of targets follows from the triangle inequality
+ *      without searching the network. The bounds are consistent, so they can replace
+ *      the reverse Dijkstra distances as the A* heuristic of the spur searches
+ *
+ * An index is built once per prepared network, on the weights of the prepared network
+ *      that don't depend on the sources and targets of a run, and is kept by the
+ *      PreparedNetwork, so it is dropped along with it when the network or its weight
+ *      column changes. The edges a run hides are never searched, so removing them only
+ *      makes the distances longer and the bounds stay lower bounds
+ */
+public class LandmarkIndex {
+
+    /** the number of landmarks of an index, fewer if the network has fewer connected nodes */
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    /** maps the SUID of each indexed node to its position in the distance arrays */
+    private final Map<Long, Integer> positions;
+    /** distancesFrom[l][i] is the distance from landmark l to the node at position i */
+    private final double[][] distancesFrom;
+    /** distancesTo[l][i] is the distance from the node at position i to landmark l */
+    private final double[][] distancesTo;
+
+    /**
+     * Constructor of the index
+     * @param positions     maps the SUID of each indexed node to its position in the distance arrays
+     * @param distancesFrom the distances from each landmark to the indexed nodes
+     * @param distancesTo   the distances from the indexed nodes to each landmark
+     */
+    private LandmarkIndex(Map<Long, Integer> positions, double[][] distancesFrom, double[][] distancesTo) {
+        this.positions = positions;
+        this.distancesFrom = distancesFrom;
+        this.distancesTo = distancesTo;
+    }
+
+    /**
+     * Builds the index of a snapshot
+     *      The first landmark is the node with the most edges, and every next one
+     *      is the node farthest from the landmarks chosen before it, so the
+     *      landmarks spread over the network and its components
+     * @param graph         the snapshot of the network, without the virtual super nodes
+     * @param landmarkCount the maximum number of landmarks
+     * @return the index of the snapshot
+     */
+    public static LandmarkIndex build(GraphSnapshot graph, int landmarkCount) {
+        int nodeCount = graph.nodeCount();
+        int[] outOffsets = graph.outOffsets();
+        int[] inOffsets = graph.inOffsets();
+
+        Map<Long, Integer> positions = new HashMap<Long, Integer>(nodeCount * 2);
+        for (int v = 0; v < nodeCount; v++)
+            positions.put(graph.getNode(v).getSUID(), v);
+
+        double[][] distancesFrom = new double[landmarkCount][];
+        double[][] distancesTo = new double[landmarkCount][];
+
+        // the distance of each node to its closest landmark in either direction
+        double[] closest = new double[nodeCount];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+
+        int count = 0;
+        while (count < landmarkCount) {
+            int landmark = -1;
+            int landmarkDegree = 0;
+            for (int v = 0; v < nodeCount; v++) {
+                int degree = outOffsets[v + 1] - outOffsets[v] + inOffsets[v + 1] - inOffsets[v];
+                if (degree == 0 || closest[v] == 0.)
+                    continue;
+
+                if (landmark == -1 || closest[v] > closest[landmark]
+                        || (closest[v] == closest[landmark] && degree > landmarkDegree)) {
+                    landmark = v;
+                    landmarkDegree = degree;
+                }
+            }
+
+            // every connected node is already a landmark
+            if (landmark == -1)
+                break;
+
+            double[] from = Algorithms.singleSourceDijkstra(graph, landmark);
+            double[] to = Algorithms.reverseSingleSourceDijkstra(graph, landmark);
+            for (int v = 0; v < nodeCount; v++)
+                closest[v] = Math.min(closest[v], Math.min(from[v], to[v]));
+            closest[landmark] = 0.;
+
+            distancesFrom[count] = from;
+            distancesTo[count] = to;
+            count++;
+        }
+
+        return new LandmarkIndex(positions, Arrays.copyOf(distancesFrom, count), Arrays.copyOf(distancesTo, count));
+    }
+
+    /**
+     * Getter method of the number of landmarks
+     * @return number of landmarks in the index
+     */
+    public int landmarkCount() {
+        return distancesFrom.length;
+    }
+
+    /**
+     * Computes a lower bound on the distance from every node of a snapshot to a target
+     *      The target is either an indexed node, or a node whose incoming edges all come
+     *      from indexed nodes, like the super target attached to the targets. For each
+     *      landmark L and target t reached through an edge of weight w the triangle
+     *      inequality gives d(v, t) + w >= d(v, L) - (d(t, L) - w) and
+     *      d(v, t) + w >= (d(L, t) + w) - d(L, v), so only the worst target of each
+     *      landmark is needed. Nodes that provably cannot reach the target are bounded
+     *      by INFINITY, as in the distances of Algorithms.reverseSingleSourceDijkstra
+     * @param graph  the snapshot of the network, possibly with nodes that are not indexed
+     * @param target the snapshot id of the target
+     * @return the lower bound of each node indexed by snapshot id, or null if the
+     *         target can not be bounded from the index
+     */
+    public double[] lowerBounds(GraphSnapshot graph, int target) {
+        int nodeCount = graph.nodeCount();
+
+        // the position of each snapshot node in the index, -1 if it is not indexed
+        // like the virtual super nodes
+        int[] nodePositions = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            CyNode node = graph.getNode(v);
+            Integer position = node != null ? positions.get(node.getSUID()) : null;
+            nodePositions[v] = position != null ? position : -1;
+        }
+
+        // the indexed targets and the weight of the edge from each of them to the target
+        int[] targets;
+        double[] offsets;
+        if (nodePositions[target] != -1) {
+            targets = new int[] { nodePositions[target] };
+            offsets = new double[] { 0. };
+        } else {
+            int[] inOffsets = graph.inOffsets();
+            int[] inEdges = graph.inEdges();
+            int[] edgeSources = graph.edgeSources();
+            double[] weights = graph.weights();
+
+            int degree = inOffsets[target + 1] - inOffsets[target];
+            if (degree == 0)
+                return null;
+
+            targets = new int[degree];
+            offsets = new double[degree];
+            for (int i = 0; i < degree; i++) {
+                int edge = inEdges[inOffsets[target] + i];
+                targets[i] = nodePositions[edgeSources[edge]];
+                offsets[i] = weights[edge];
+                if (targets[i] == -1)
+                    return null;
+            }
+        }
+
+        // for each landmark, the largest d(t, L) - w and the smallest d(L, t) + w
+        // over the targets, and whether every target reaches L and L reaches any target
+        int landmarks = landmarkCount();
+        double[] toLandmark = new double[landmarks];
+        boolean[] allReachLandmark = new boolean[landmarks];
+        double[] fromLandmark = new double[landmarks];
+        boolean[] landmarkReachesAny = new boolean[landmarks];
+        for (int l = 0; l < landmarks; l++) {
+            toLandmark[l] = Double.NEGATIVE_INFINITY;
+            allReachLandmark[l] = true;
+            fromLandmark[l] = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < targets.length; i++) {
+                double to = distancesTo[l][targets[i]];
+                if (Algorithms.isInf(to))
+                    allReachLandmark[l] = false;
+                else
+                    toLandmark[l] = Math.max(toLandmark[l], to - offsets[i]);
+
+                double from = distancesFrom[l][targets[i]];
+                if (!Algorithms.isInf(from)) {
+                    landmarkReachesAny[l] = true;
+                    fromLandmark[l] = Math.min(fromLandmark[l], from + offsets[i]);
+                }
+            }
+        }
+
+        double[] bounds = new double[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            int position = nodePositions[v];
+            if (v == target || position == -1)
+                continue;
+
+            double bound = 0.;
+            for (int l = 0; l < landmarks; l++) {
+                double to = distancesTo[l][position];
+                double from = distancesFrom[l][position];
+
+                // every target reaches the landmark, so v reaches a target only if it reaches the landmark
+                if (allReachLandmark[l]) {
+                    if (Algorithms.isInf(to)) {
+                        bound = Algorithms.INFINITY;
+                        break;
+                    }
+                    bound = Math.max(bound, to - toLandmark[l]);
+                }
+
+                // the landmark reaches v, so v reaches a target only if the landmark does
+                if (!Algorithms.isInf(from)) {
+                    if (!landmarkReachesAny[l]) {
+                        bound = Algorithms.INFINITY;
+                        break;
+                    }
+                    bound = Math.max(bound, fromLandmark[l] - from);
+                }
+            }
+
+            bounds[v] = bound;
+        }
+
+        return bounds;
+    }
+}
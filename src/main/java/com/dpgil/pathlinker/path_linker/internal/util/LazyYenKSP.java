@@ -0,0 +1,634 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.cytoscape.model.CyNode;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+
+/**
+ * Lazy variant of the Yen's algorithm of Algorithms.ksp, an alternative for very large k
+ *
+ * Paths are enumerated by deviation like Yen's algorithm with Lawler's modification:
+ *      every accepted path spawns one deviation per node from its deviation index on,
+ *      each standing for the paths that share the root path up to that node but take
+ *      a next hop no accepted path took after it. The reverse shortest path tree to the
+ *      target is computed once per run, without the edges hidden from the run, and the
+ *      edges out of each node are ranked by their reduced cost, their weight plus the
+ *      distance of their head. Instead of running a spur search for every deviation, the
+ *      deviation is queued with the lower bound of its best allowed edge, and is only
+ *      resolved once the bound reaches the head of the queue, so the deviations of the
+ *      paths past the kth one are never resolved
+ *
+ * As in the algorithm of Kurz and Mutzel, a deviation whose best edge leads into a
+ *      tree path that avoids the root path is resolved along the tree without a search,
+ *      since the edge followed by the tree path is a shortest path of the deviation.
+ *      This is only done when every other path of the deviation is longer by more than
+ *      rounding, so the path is the one the spur search would find. Every other
+ *      deviation falls back to the A* spur search of Yen's algorithm
+ *
+ * The engine is an iterator over the paths in the order they are accepted, and computes
+ *      each path when it is requested
+ *
+ * The first path, the spur search of a deviation and its heuristic are the ones of
+ *      Algorithms.ksp, and a path taken along the tree is unique and weighed in the order
+ *      the forward A* search adds up its edges, so a deviation resolves to the same path
+ *      in both engines. The tree is not used with the bidirectional spur search, which
+ *      adds up the weights of a path in another order. Deviations
+ *      are numbered in the order Yen's algorithm computes their spur paths, and candidates
+ *      of equal weight are accepted in that order, as Yen's algorithm accepts its tied
+ *      candidates in the order it found them. Every candidate of a weight is resolved
+ *      before one is accepted, so the two engines accept the same paths in the same order,
+ *      including the tied paths kept when the kth path is tied and tied paths are not included
+ */
+public class LazyYenKSP implements KSPIterator {
+
+    /** relative slack taken off the lower bounds, so rounding never lifts a bound above its path weight */
+    private static final double BOUND_SLACK = 1E-9;
+    /** relative margin by which a tree path must beat every other path of a deviation to be taken without a search */
+    private static final double TIE_SLACK = 1E-9;
+
+    /** the state of this run */
+    private final KSPContext context;
+    /** the snapshot of the network */
+    private final GraphSnapshot graph;
+    /** the snapshot id of the source node */
+    private final int source;
+    /** the snapshot id of the target node */
+    private final int target;
+    /** the number of shortest paths */
+    private final int maxK;
+    /** the option to include all paths of equal length */
+    private final boolean includePathScoreTies;
+    /** the heuristic of the A* spur searches, the one of Algorithms.ksp so both engines break ties between spur paths alike, null until the first path is requested */
+    private double[] minDists;
+    /** the reverse shortest path tree to the target without the edges hidden from the run, null until the first path is requested */
+    private ShortestPathTree tree;
+    /** the distance of each node to the target in the tree, used as lower bounds */
+    private double[] treeDists;
+    /** how much the best edge out of each node other than its tree edge loses to the tree edge */
+    private double[] treeGaps;
+    /** the outgoing edges of each node sorted by their reduced cost, created on first use */
+    private final int[][] sortedOutEdges;
+    /** the generation in which each node was last marked as part of the root path */
+    private final int[] rootStamps;
+    /** the current root path generation */
+    private int rootGeneration;
+    /** the deviations to resolve and the candidate paths, ordered by weight */
+    private final PriorityQueue<Deviation> queue = new PriorityQueue<Deviation>();
+    /** the number of deviations queued so far, used to break ties */
+    private long sequence;
+    /** the number of nodes of the candidate paths in the queue */
+    private long candidateNodes;
+    /** the trie of the prefixes of accepted paths */
+    private final PrefixTrie prefixTrie = new PrefixTrie();
+    /** the most recently accepted path, null before the first one */
+    private PathWay latestPath;
+    /** the number of paths accepted so far */
+    private int accepted;
+    /** the number of deviations resolved along the tree without a spur search */
+    private int treeResolved;
+    /** the next path, computed but not returned yet */
+    private PathWay next;
+    /** whether no path is left */
+    private boolean done;
+
+    /**
+     * Constructor of the engine, doesn't compute anything until the first path is requested
+     * @param context              the state of this run
+     * @param source               the snapshot id of the source node
+     * @param target               the snapshot id of the target node
+     * @param maxK                 the number of shortest paths
+     * @param includePathScoreTies the option to include all paths of equal length
+     */
+    private LazyYenKSP(KSPContext context, int source, int target, int maxK, boolean includePathScoreTies) {
+        this.context = context;
+        this.graph = context.getGraph();
+        this.source = source;
+        this.target = target;
+        this.maxK = maxK;
+        this.includePathScoreTies = includePathScoreTies;
+        this.sortedOutEdges = new int[graph.nodeCount()][];
+        this.rootStamps = new int[graph.nodeCount()];
+    }
+
+    /**
+     * Computes the k shortest acyclic paths in the supplied network with lazily
+     *      resolved deviations. Takes the same arguments and returns the same paths as Algorithms.ksp
+     * @param context              the state of this run, including the network snapshot
+     *                             and the edges hidden from the algorithm
+     * @param source               the source node
+     * @param target               the target node
+     * @param maxK                 the number of shortest paths
+     * @param includePathScoreTies the option to include all paths of equal length
+     * @return a list of k-shortest paths in sorted order by cost
+     */
+    public static ArrayList<PathWay> ksp(KSPContext context, CyNode source, CyNode target,
+            int maxK, boolean includePathScoreTies) {
+        ArrayList<PathWay> A = new ArrayList<PathWay>();
+
+        KSPIterator paths = kspIterator(context, source, target, maxK, includePathScoreTies);
+        while (paths.hasNext())
+            A.add(paths.next());
+
+        return A;
+    }
+
+    /**
+     * Iterates over the k shortest acyclic paths in the order they are accepted
+     *      each path is computed when it is requested, so the paths can be consumed
+     *      as soon as they are found. Yields the same paths as ksp, and stops
+     *      yielding paths once the context is cancelled
+     * @param context              the state of this run, including the network snapshot
+     *                             and the edges hidden from the algorithm
+     * @param source               the source node
+     * @param target               the target node
+     * @param maxK                 the number of shortest paths
+     * @param includePathScoreTies the option to include all paths of equal length
+     * @return an iterator over the k-shortest paths in sorted order by cost
+     */
+    public static KSPIterator kspIterator(KSPContext context, CyNode source, CyNode target,
+            int maxK, boolean includePathScoreTies) {
+        GraphSnapshot graph = context.getGraph();
+        return kspIterator(context, graph.getNodeId(source), graph.getNodeId(target),
+                maxK, includePathScoreTies);
+    }
+
+    /**
+     * Iterates over the k shortest acyclic paths between two nodes given by their
+     *      snapshot ids, such as the virtual super source and super target of the snapshot
+     * @param context              the state of this run, including the network snapshot
+     *                             and the edges hidden from the algorithm
+     * @param sourceId             the snapshot id of the source node
+     * @param targetId             the snapshot id of the target node
+     * @param maxK                 the number of shortest paths
+     * @param includePathScoreTies the option to include all paths of equal length
+     * @return an iterator over the k-shortest paths in sorted order by cost
+     */
+    public static KSPIterator kspIterator(KSPContext context, int sourceId, int targetId,
+            int maxK, boolean includePathScoreTies) {
+        return new LazyYenKSP(context, sourceId, targetId, maxK, includePathScoreTies);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = latestPath == null ? computeFirstPath() : computeNextPath();
+            if (next == null)
+                done = true;
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public PathWay next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        PathWay path = next;
+        next = null;
+        return path;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getCandidateCount() {
+        return queue.size();
+    }
+
+    /**
+     * Getter method of the number of deviations resolved along the tree
+     * @return the number of deviations resolved without a spur search so far
+     */
+    int getTreeResolvedCount() {
+        return treeResolved;
+    }
+
+    /**
+     * Computes the heuristic and the reverse shortest path tree to the target and accepts the shortest path
+     * @return the shortest path, or null if the target is unreachable
+     */
+    private PathWay computeFirstPath() {
+        minDists = Algorithms.heuristicDistances(context, target);
+        tree = Algorithms.reverseSingleSourceDijkstraTree(context, target);
+        treeDists = tree.getDistances();
+        treeGaps = computeTreeGaps();
+
+        if (context.isCancelled())
+            return null;
+
+        // the same shortest path as Algorithms.ksp, whose deviations are the first ones queued
+        PathWay shortestPath = Algorithms.dijkstra(graph, context.getCyNodeToId(), source, target);
+
+        // there is no path from source to target
+        if (shortestPath == null)
+            return null;
+
+        return accept(Algorithms.toNodeIds(graph, shortestPath), shortestPath);
+    }
+
+    /**
+     * Accepts the next candidate path and queues its deviations
+     * @return the next shortest path, or null if there is none or the
+     *         k paths and their ties were already accepted
+     */
+    private PathWay computeNextPath() {
+        // continue the loop if includePathScoreTies is true even if k is greater or equal to than maxK
+        if (!(accepted < maxK || includePathScoreTies))
+            return null;
+
+        Deviation candidate = pollPath();
+
+        // terminates early if there are no more paths from the source to the target
+        if (candidate == null)
+            return null;
+
+        // stops at the first path not tied with the last one, with the same
+        // rule as Algorithms.ksp
+        if (accepted >= maxK && accepted > 2 && latestPath.weight != candidate.path.weight)
+            return null;
+
+        return accept(candidate.nodeIds, candidate.path);
+    }
+
+    /**
+     * Accepts a path and queues a deviation at every node of the path from the node
+     *      where it deviates from the previously accepted paths
+     * @param nodeIds the snapshot ids of the nodes of the path
+     * @param path    the path
+     * @return the path
+     */
+    private PathWay accept(int[] nodeIds, PathWay path) {
+        latestPath = path;
+        accepted++;
+
+        int deviation = Math.max(prefixTrie.addPath(nodeIds) - 1, 0);
+        PrefixTrie.Node[] prefixes = prefixTrie.getPrefixNodes(nodeIds);
+        double[] rootDists = Algorithms.rootDistances(graph, nodeIds);
+
+        for (int i = deviation; i < nodeIds.length - 1; i++)
+            queueDeviation(nodeIds, i, rootDists[i], prefixes[i]);
+
+        // the path is still returned, the run stops at the next poll
+        context.checkCandidateLimits(queue.size(), candidateNodes);
+        return path;
+    }
+
+    /**
+     * Resolves deviations until a candidate path is at the head of the queue
+     * @return the candidate path with the smallest weight, or null if there is none or the run was cancelled
+     */
+    private Deviation pollPath() {
+        while (!queue.isEmpty()) {
+            // stops between deviations once the run is cancelled
+            if (context.isCancelled())
+                return null;
+
+            Deviation head = queue.poll();
+            if (head.path != null) {
+                candidateNodes -= head.nodeIds.length;
+                return head;
+            }
+
+            Deviation resolved = resolve(head);
+            if (resolved != null) {
+                queue.add(resolved);
+                candidateNodes += resolved.nodeIds.length;
+
+                // stops with the paths found so far once the candidates
+                // outgrow the limits of the run
+                if (context.checkCandidateLimits(queue.size(), candidateNodes))
+                    return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Queues the deviation at a node of an accepted path with its lower bound
+     *      no deviation is queued if no allowed edge leads to the target
+     * @param nodeIds   the snapshot ids of the nodes of the accepted path
+     * @param spurIndex the position of the spur node in the path
+     * @param rootDist  the weight of the root path up to the spur node
+     * @param prefix    the trie node of the root path, holding the next hops already taken
+     */
+    private void queueDeviation(int[] nodeIds, int spurIndex, double rootDist, PrefixTrie.Node prefix) {
+        markRootPath(nodeIds, spurIndex);
+
+        int edge = bestDeviationEdge(nodeIds[spurIndex], prefix);
+        if (edge == -1)
+            return;
+
+        double bound = rootDist + graph.getWeight(edge) + treeDists[graph.getTarget(edge)];
+        queue.add(new Deviation(nodeIds, spurIndex, prefix, rootDist,
+                bound - BOUND_SLACK * Math.abs(bound), null, sequence++));
+    }
+
+    /**
+     * Resolves a deviation to the shortest path it stands for, along the tree when
+     *      its shortest path is unique, otherwise with the same A* spur search as
+     *      Algorithms.ksp: the root path can't be re-entered and the next hops
+     *      already taken are hidden
+     * @param deviation the deviation to resolve
+     * @return the candidate path of the deviation, or null if the target is unreachable
+     */
+    private Deviation resolve(Deviation deviation) {
+        int[] rootIds = deviation.nodeIds;
+        int spurIndex = deviation.spurIndex;
+
+        Deviation alongTree = resolveAlongTree(deviation);
+        if (alongTree != null) {
+            treeResolved++;
+            return alongTree;
+        }
+
+        for (int i = 0; i <= spurIndex; i++)
+            Algorithms.hideIncomingEdges(context, rootIds[i]);
+        Algorithms.hidePrefixEdges(context, deviation.prefix);
+
+        // the spur search starts from the distance of the root path, so its
+        // weight is already the weight of the whole path, as in Algorithms.ksp
+        PathWay pathSpur = Algorithms.spurSearch(context, rootIds[spurIndex], target, minDists, deviation.rootDist);
+        context.resetHiddenEdges();
+
+        if (pathSpur == null)
+            return null;
+
+        int[] nodeIds = Arrays.copyOf(rootIds, spurIndex + pathSpur.size());
+        for (int i = 0; i < pathSpur.size(); i++)
+            nodeIds[spurIndex + i] = graph.getNodeId(pathSpur.nodeList, i);
+
+        return candidate(deviation, nodeIds, pathSpur.weight);
+    }
+
+    /**
+     * Resolves a deviation without a search when its best allowed edge leads into
+     *      a tree path that avoids the root path, and every other path of the deviation,
+     *      through another edge out of the spur node or leaving the tree path at one of
+     *      its nodes, is longer by more than rounding
+     * @param deviation the deviation to resolve
+     * @return the candidate path of the deviation, or null if a spur search has to resolve it
+     */
+    private Deviation resolveAlongTree(Deviation deviation) {
+        // the bidirectional search weighs the path in another order, so its
+        // weight could differ from the one computed here by rounding
+        if (context.isBidirectionalSpurSearch())
+            return null;
+
+        int[] rootIds = deviation.nodeIds;
+        int spurIndex = deviation.spurIndex;
+        markRootPath(rootIds, spurIndex);
+
+        // the two allowed edges of smallest reduced cost
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        double secondCost = Double.POSITIVE_INFINITY;
+        for (int edge : getSortedOutEdges(rootIds[spurIndex])) {
+            int head = graph.getTarget(edge);
+            if (context.isHidden(edge) || isOnRootPath(head) || deviation.prefix.getChild(head) != null)
+                continue;
+
+            double cost = graph.getWeight(edge) + treeDists[head];
+            if (best != -1) {
+                secondCost = cost;
+                break;
+            }
+
+            best = edge;
+            bestCost = cost;
+        }
+
+        if (best == -1 || Algorithms.isInf(bestCost))
+            return null;
+
+        double margin = TIE_SLACK * Math.abs(deviation.rootDist + bestCost);
+        if (secondCost - bestCost <= margin)
+            return null;
+
+        // the tree path must avoid the root path and be the only shortest path of its nodes
+        int length = 1;
+        for (int node = graph.getTarget(best); node != target; node = tree.getParent(node)) {
+            if (isOnRootPath(node) || treeGaps[node] <= margin)
+                return null;
+            length++;
+        }
+
+        // adds up the weights from the spur node on, as the A* spur search does
+        int[] nodeIds = Arrays.copyOf(rootIds, spurIndex + 1 + length);
+        double weight = deviation.rootDist + graph.getWeight(best);
+        int node = graph.getTarget(best);
+        for (int i = spurIndex + 1; i < nodeIds.length; i++) {
+            nodeIds[i] = node;
+            if (node != target) {
+                weight += graph.getWeight(tree.getParentEdge(node));
+                node = tree.getParent(node);
+            }
+        }
+
+        return candidate(deviation, nodeIds, weight);
+    }
+
+    /**
+     * Creates the queue entry of the candidate path a deviation resolved to
+     * @param deviation the resolved deviation
+     * @param nodeIds   the snapshot ids of the nodes of the candidate path
+     * @param weight    the weight of the candidate path
+     * @return the entry of the candidate path
+     */
+    private Deviation candidate(Deviation deviation, int[] nodeIds, double weight) {
+        ArrayList<CyNode> nodeList = new ArrayList<CyNode>(nodeIds.length);
+        for (int node : nodeIds)
+            nodeList.add(graph.getNode(node));
+
+        PathWay path = new PathWay(nodeList, context.getCyNodeToId(), weight);
+        return new Deviation(nodeIds, deviation.spurIndex, deviation.prefix, deviation.rootDist, path.weight, path,
+                deviation.sequence);
+    }
+
+    /**
+     * Computes how much the best edge out of each node other than its tree edge loses
+     *      to the tree edge, taking the edge weight plus the distance of its head. A tree
+     *      path whose nodes all have a gap wider than rounding is the only shortest path
+     *      from its first node, also once more edges are hidden
+     * @return the gap of each node, infinite for the target, unreachable nodes and
+     *         nodes without another edge to the target
+     */
+    private double[] computeTreeGaps() {
+        int[] outOffsets = graph.outOffsets();
+        int[] outEdges = graph.outEdges();
+
+        double[] gaps = new double[graph.nodeCount()];
+        for (int node = 0; node < gaps.length; node++) {
+            gaps[node] = Double.POSITIVE_INFINITY;
+
+            int treeEdge = tree.getParentEdge(node);
+            if (treeEdge == -1)
+                continue;
+
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                int edge = outEdges[i];
+                if (edge == treeEdge || context.isHidden(edge))
+                    continue;
+
+                double gap = graph.getWeight(edge) + treeDists[graph.getTarget(edge)] - treeDists[node];
+                gaps[node] = Math.min(gaps[node], gap);
+            }
+        }
+
+        return gaps;
+    }
+
+    /**
+     * Finds the allowed edge out of a spur node with the smallest reduced cost
+     *      the edge must not be hidden, lead into the root path or to a next hop already taken
+     * @param spur   the snapshot id of the spur node
+     * @param prefix the trie node of the root path, holding the next hops already taken
+     * @return the snapshot id of the edge, or -1 if no allowed edge leads to the target
+     */
+    private int bestDeviationEdge(int spur, PrefixTrie.Node prefix) {
+        for (int edge : getSortedOutEdges(spur)) {
+            int head = graph.getTarget(edge);
+
+            // the edges are sorted, so no later edge leads to the target either
+            if (Algorithms.isInf(treeDists[head]))
+                return -1;
+
+            if (context.isHidden(edge) || isOnRootPath(head) || prefix.getChild(head) != null)
+                continue;
+
+            return edge;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Getter method of the outgoing edges of a node sorted by their reduced cost, the edge
+     *      weight plus the distance of its head minus the distance of the node, which orders
+     *      the edges as their weight plus the distance of their head
+     * @param node the snapshot id of the node
+     * @return the sorted snapshot ids of the outgoing edges
+     */
+    private int[] getSortedOutEdges(int node) {
+        if (sortedOutEdges[node] != null)
+            return sortedOutEdges[node];
+
+        int[] outOffsets = graph.outOffsets();
+        int[] outEdges = graph.outEdges();
+        Integer[] edges = new Integer[outOffsets[node + 1] - outOffsets[node]];
+        for (int i = 0; i < edges.length; i++)
+            edges[i] = outEdges[outOffsets[node] + i];
+
+        Arrays.sort(edges, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer e1, Integer e2) {
+                return Double.compare(graph.getWeight(e1) + treeDists[graph.getTarget(e1)],
+                        graph.getWeight(e2) + treeDists[graph.getTarget(e2)]);
+            }
+        });
+
+        int[] sorted = new int[edges.length];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = edges[i];
+
+        sortedOutEdges[node] = sorted;
+        return sorted;
+    }
+
+    /**
+     * Marks the nodes of a root path, unmarking the previously marked root path
+     * @param nodeIds   the snapshot ids of the nodes of the path
+     * @param spurIndex the position of the last node of the root path
+     */
+    private void markRootPath(int[] nodeIds, int spurIndex) {
+        if (rootGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(rootStamps, 0);
+            rootGeneration = 0;
+        }
+
+        rootGeneration++;
+        for (int i = 0; i <= spurIndex; i++)
+            rootStamps[nodeIds[i]] = rootGeneration;
+    }
+
+    /**
+     * Check if a node is on the marked root path
+     * @param node the snapshot id of the node
+     * @return true if the node is on the root path, otherwise false
+     */
+    private boolean isOnRootPath(int node) {
+        return rootStamps[node] == rootGeneration;
+    }
+
+    /**
+     * An entry of the queue, either a deviation with the lower bound of its paths
+     *      or the candidate path a deviation resolved to
+     */
+    private static class Deviation implements Comparable<Deviation> {
+
+        /** the snapshot ids of the nodes of the accepted path whose prefix is the root path, or of the candidate path */
+        private final int[] nodeIds;
+        /** the position of the spur node in the path */
+        private final int spurIndex;
+        /** the trie node of the root path, holding the next hops already taken */
+        private final PrefixTrie.Node prefix;
+        /** the weight of the root path up to the spur node */
+        private final double rootDist;
+        /** the lower bound of the deviation, or the weight of the candidate path */
+        private final double key;
+        /** the candidate path, null for an unresolved deviation */
+        private final PathWay path;
+        /** the number of deviations queued before this one, or before the deviation of the candidate path */
+        private final long sequence;
+
+        /**
+         * Constructor of the entry
+         * @param nodeIds   the snapshot ids of the nodes of the accepted path whose prefix is
+         *                  the root path, or of the candidate path
+         * @param spurIndex the position of the spur node in the path
+         * @param prefix    the trie node of the root path
+         * @param rootDist  the weight of the root path up to the spur node
+         * @param key       the lower bound of the deviation, or the weight of the candidate path
+         * @param path      the candidate path, null for an unresolved deviation
+         * @param sequence  the number of deviations queued before this one, or before the
+         *                  deviation of the candidate path
+         */
+        private Deviation(int[] nodeIds, int spurIndex, PrefixTrie.Node prefix, double rootDist,
+                double key, PathWay path, long sequence) {
+            this.nodeIds = nodeIds;
+            this.spurIndex = spurIndex;
+            this.prefix = prefix;
+            this.rootDist = rootDist;
+            this.key = key;
+            this.path = path;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Orders the entries by key. At equal keys unresolved deviations come first,
+         *      as they may resolve to a path found before the candidates of that weight,
+         *      and candidate paths are ordered by the sequence of their deviation
+         */
+        @Override
+        public int compareTo(Deviation o) {
+            int byKey = Double.compare(key, o.key);
+            if (byKey != 0)
+                return byKey;
+
+            if ((path == null) != (o.path == null))
+                return path == null ? -1 : 1;
+
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
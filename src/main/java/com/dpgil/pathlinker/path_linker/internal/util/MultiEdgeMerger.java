@@ -0,0 +1,114 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Merges the multiple edges between the same source and target into one edge
+ *      whose weight is the average of their weights, as PathLinker does not support
+ *      multi-graphs. The edges are looked up in an open addressing table keyed by the
+ *      packed (source, target) node ids, and each merged edge keeps a running sum and
+ *      count of its weights, so adding an edge allocates no key or weight list
+ */
+public class MultiEdgeMerger {
+
+    /** the node id of the source of each merged edge */
+    private final int[] edgeSources;
+    /** the node id of the target of each merged edge */
+    private final int[] edgeTargets;
+    /** the sum of the weights of the edges merged into each edge */
+    private final double[] weightSums;
+    /** the number of edges merged into each edge */
+    private final int[] weightCounts;
+    /** open addressing table of the packed (source, target) key of each merged edge, EMPTY_KEY for a free slot */
+    private final long[] edgeKeys;
+    /** the id of the merged edge whose key is in the same slot of edgeKeys */
+    private final int[] edgeSlots;
+    /** the number of merged edges */
+    private int edgeCount;
+
+    /** the key of a free slot in edgeKeys, packed keys of node ids are never negative */
+    private static final long EMPTY_KEY = -1L;
+
+    /**
+     * Constructor of an empty merger
+     * @param maxEdges the maximum number of edges that will be added
+     */
+    public MultiEdgeMerger(int maxEdges) {
+        edgeSources = new int[maxEdges];
+        edgeTargets = new int[maxEdges];
+        weightSums = new double[maxEdges];
+        weightCounts = new int[maxEdges];
+
+        // a power of two capacity of at least twice the number of edges keeps
+        // the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, maxEdges) * 2 - 1) << 1;
+        edgeKeys = new long[capacity];
+        edgeSlots = new int[capacity];
+        Arrays.fill(edgeKeys, EMPTY_KEY);
+    }
+
+    /**
+     * Adds an edge, merging it into the edge already added between the same source and target
+     * @param source the node id of the source
+     * @param target the node id of the target
+     * @param weight the weight of the edge
+     * @return the id of the merged edge, the ids follow the order the edges were first added in
+     */
+    public int addEdge(int source, int target, double weight) {
+        long key = GraphSnapshot.packEdgeKey(source, target);
+        int mask = edgeKeys.length - 1;
+        int slot = GraphSnapshot.slotOf(key, mask);
+        while (edgeKeys[slot] != EMPTY_KEY && edgeKeys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        int edge;
+        if (edgeKeys[slot] == EMPTY_KEY) {
+            edge = edgeCount++;
+            edgeKeys[slot] = key;
+            edgeSlots[slot] = edge;
+            edgeSources[edge] = source;
+            edgeTargets[edge] = target;
+        } else
+            edge = edgeSlots[slot];
+
+        weightSums[edge] += weight;
+        weightCounts[edge]++;
+        return edge;
+    }
+
+    /**
+     * Getter method of the number of merged edges
+     * @return number of distinct (source, target) pairs added
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Getter method of the sources of the merged edges
+     * @return the node id of the source of each merged edge
+     */
+    public int[] getEdgeSources() {
+        return Arrays.copyOf(edgeSources, edgeCount);
+    }
+
+    /**
+     * Getter method of the targets of the merged edges
+     * @return the node id of the target of each merged edge
+     */
+    public int[] getEdgeTargets() {
+        return Arrays.copyOf(edgeTargets, edgeCount);
+    }
+
+    /**
+     * Getter method of the weights of the merged edges
+     * @return the average of the weights of the edges merged into each edge
+     */
+    public double[] getAverageWeights() {
+        double[] weights = new double[edgeCount];
+        for (int e = 0; e < edgeCount; e++)
+            weights[e] = weightSums[e] / weightCounts[e];
+
+        return weights;
+    }
+}
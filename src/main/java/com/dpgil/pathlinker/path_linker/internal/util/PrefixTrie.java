@@ -0,0 +1,172 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Prefix trie (deviation tree) of the paths accepted by Yen's algorithm
+ *      Every trie node stands for a distinct prefix of the accepted paths, and its
+ *      children are the next hops already taken after that prefix. Accepted paths
+ *      share the trie nodes of their common prefixes, so memory grows with the
+ *      number of distinct prefixes instead of the sum of squared path lengths
+ *
+ * Paths are given as arrays of GraphSnapshot node ids
+ */
+public class PrefixTrie {
+
+    /** the trie node of the empty prefix */
+    private final Node root = new Node(-1, 0);
+
+    /**
+     * Getter method of the root of the trie
+     * @return the trie node of the empty prefix
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Adds every prefix of a path to the trie
+     *      The first prefix that was not in the trie ends right after the node
+     *      where the path deviates from the paths added before it
+     * @param path the snapshot ids of the nodes of the path
+     * @return the number of nodes in the longest prefix of the path that was already in the trie
+     */
+    public int addPath(int[] path) {
+        Node node = root;
+        int existing = 0;
+        for (int i = 0; i < path.length; i++) {
+            Node child = node.getChild(path[i]);
+            if (child == null)
+                break;
+
+            node = child;
+            existing++;
+        }
+
+        for (int i = existing; i < path.length; i++)
+            node = node.addChild(path[i]);
+
+        return existing;
+    }
+
+    /**
+     * Looks up the trie node of every prefix of a path already in the trie
+     * @param path the snapshot ids of the nodes of the path
+     * @return the trie node of path[0..i] at index i
+     */
+    public Node[] getPrefixNodes(int[] path) {
+        Node[] prefixes = new Node[path.length];
+        Node node = root;
+        for (int i = 0; i < path.length; i++) {
+            node = node.getChild(path[i]);
+            if (node == null)
+                throw new IllegalArgumentException("The path is not in the trie");
+
+            prefixes[i] = node;
+        }
+
+        return prefixes;
+    }
+
+    /**
+     * A prefix of the accepted paths, stored as the last node of the prefix
+     *      and the next hops taken after it
+     */
+    public static class Node {
+
+        /** the next hops of a prefix without any, shared until the first one is added */
+        private static final int[] NO_NEXT_HOPS = new int[0];
+        /** the children of a prefix without any, shared until the first one is added */
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        /** the snapshot id of the last node of the prefix, -1 for the empty prefix */
+        private final int nodeId;
+        /** the number of nodes in the prefix */
+        private final int depth;
+        /** the snapshot ids of the next hops, in the order they were added */
+        private int[] nextHops = NO_NEXT_HOPS;
+        /** the child of each next hop */
+        private Node[] children = NO_CHILDREN;
+        /** the number of next hops */
+        private int size;
+
+        /**
+         * Constructor of a trie node
+         * @param nodeId the snapshot id of the last node of the prefix
+         * @param depth  the number of nodes in the prefix
+         */
+        private Node(int nodeId, int depth) {
+            this.nodeId = nodeId;
+            this.depth = depth;
+        }
+
+        /**
+         * Getter method of the last node of the prefix
+         * @return the snapshot id of the last node of the prefix, -1 for the empty prefix
+         */
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        /**
+         * Getter method of the length of the prefix
+         * @return the number of nodes in the prefix
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Getter method of the number of next hops taken after the prefix
+         * @return number of next hops
+         */
+        public int nextHopCount() {
+            return size;
+        }
+
+        /**
+         * Getter method of a next hop taken after the prefix
+         * @param i the index of the next hop, in the order they were added
+         * @return the snapshot id of the next hop
+         */
+        public int getNextHop(int i) {
+            return nextHops[i];
+        }
+
+        /**
+         * Getter method of the child of a next hop
+         * @param next the snapshot id of the next hop
+         * @return the trie node of the prefix followed by the next hop, or null if it was never taken
+         */
+        public Node getChild(int next) {
+            for (int i = 0; i < size; i++) {
+                if (nextHops[i] == next)
+                    return children[i];
+            }
+
+            return null;
+        }
+
+        /**
+         * Adds a next hop after the prefix unless it was already taken
+         * @param next the snapshot id of the next hop
+         * @return the trie node of the prefix followed by the next hop
+         */
+        private Node addChild(int next) {
+            Node child = getChild(next);
+            if (child != null)
+                return child;
+
+            if (size == nextHops.length) {
+                int capacity = Math.max(2, size * 2);
+                nextHops = Arrays.copyOf(nextHops, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+
+            child = new Node(next, depth + 1);
+            nextHops[size] = next;
+            children[size++] = child;
+            return child;
+        }
+    }
+}
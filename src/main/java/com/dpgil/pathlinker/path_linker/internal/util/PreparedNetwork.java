@@ -0,0 +1,423 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+
+/**
+ * The network PathLinker runs on, as prepared from a network and its weight settings
+ *      Holds the bi-directed edges with multi-edges merged and the weights of the edges
+ *      before and after the edge penalty and log transformation. None of it depends on
+ *      the sources and targets of a run, so it is cached and reused by later runs on the
+ *      same network and weight settings, which then only build their GraphSnapshot
+ *
+ * The cache is kept up to date by PathLinkerSnapshotCacheListener, which invalidates the
+ *      networks that are destroyed or whose nodes, node names, edges or edge weight column
+ *      change. Every invalidation bumps a generation number, and a network is only cached
+ *      if nothing it was read from was invalidated since the generation its reads started at,
+ *      so a run never caches a network that changed while it was being read. As a safety net,
+ *      an entry whose node or edge count no longer matches the network is never returned
+ *
+ * The number of cached networks defaults to DEFAULT_CACHE_SIZE and can be set with the
+ *      CACHE_SIZE_PROPERTY of the Cytoscape properties. The hit and miss counters tell
+ *      how often runs found their network in the cache, to tune that size
+ */
+public class PreparedNetwork {
+
+    /** the number of prepared networks kept in the cache by default */
+    public static final int DEFAULT_CACHE_SIZE = 8;
+    /** the Cytoscape property setting the number of prepared networks kept in the cache */
+    public static final String CACHE_SIZE_PROPERTY = "pathlinker.preparedNetworkCacheSize";
+    /** the number of target sets whose distances are kept per prepared network */
+    private static final int TARGET_SET_CACHE_SIZE = 16;
+
+    /** the number of prepared networks kept in the cache, the least recently used one is evicted first */
+    private static int cacheSize = DEFAULT_CACHE_SIZE;
+    /** the number of lookups that found a prepared network in the cache */
+    private static final AtomicLong hitCount = new AtomicLong();
+    /** the number of lookups that found no prepared network in the cache */
+    private static final AtomicLong missCount = new AtomicLong();
+    /** the number of invalidations so far, the generation a preparation starts at */
+    private static long generation;
+    /** the generation of the last invalidation of each network */
+    private static final Map<Long, Long> networkGenerations = new HashMap<Long, Long>();
+    /** the generation of the last invalidation of each column */
+    private static final Map<String, Long> columnGenerations = new HashMap<String, Long>();
+    /** the columns networks were prepared from, whose changes must be invalidated */
+    private static final Set<String> watchedColumns = new HashSet<String>(Arrays.asList(CyNetwork.NAME));
+
+    /** the cached networks by network and weight settings */
+    private static final Map<Object, PreparedNetwork> cache = new LinkedHashMap<Object, PreparedNetwork>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, PreparedNetwork> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /** the SUID of the network the edges were prepared from */
+    private final long networkSUID;
+    /** the edge weight column the weights were read from, null for unweighted networks */
+    private final String weightColumnName;
+    /** the number of nodes of the network when it was prepared */
+    private final int networkNodeCount;
+    /** the number of edges of the network when it was prepared */
+    private final int networkEdgeCount;
+    /** the nodes of the network, the edges refer to their positions */
+    private final List<CyNode> nodes;
+    /** the position of each node in the node list */
+    private final Map<CyNode, Integer> nodeIndices;
+    /** the name of each node of the network */
+    private final Map<CyNode, String> cyNodeToId;
+    /** the node of each name, created on first use */
+    private Map<String, CyNode> idToCyNode;
+    /** the position of the source node of each edge */
+    private final int[] edgeSources;
+    /** the position of the target node of each edge */
+    private final int[] edgeTargets;
+    /** the weight of each edge used by the algorithm */
+    private final double[] weights;
+    /** the landmark index of the network, null until a run asks for it */
+    private LandmarkIndex landmarkIndex;
+    /** the distances to each recently used target set */
+    private final Map<BitSet, TargetDistances> targetDistances = new LinkedHashMap<BitSet, TargetDistances>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BitSet, TargetDistances> eldest) {
+            return size() > TARGET_SET_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Constructor of the prepared network
+     *      the lists, map and arrays are shared with the prepared network and must not be modified
+     * @param network          the network the edges were prepared from
+     * @param weightColumnName the edge weight column the weights were read from, null for unweighted networks
+     * @param nodes            the nodes of the network
+     * @param nodeIndices      the position of each node in the node list
+     * @param cyNodeToId       the name of each node of the network
+     * @param edgeSources      the position of the source node of each edge
+     * @param edgeTargets      the position of the target node of each edge
+     * @param weights          the weight of each edge used by the algorithm
+     */
+    public PreparedNetwork(CyNetwork network, String weightColumnName, List<CyNode> nodes,
+            Map<CyNode, Integer> nodeIndices, Map<CyNode, String> cyNodeToId,
+            int[] edgeSources, int[] edgeTargets, double[] weights) {
+        this.networkSUID = network.getSUID();
+        this.weightColumnName = weightColumnName;
+        this.networkNodeCount = network.getNodeCount();
+        this.networkEdgeCount = network.getEdgeCount();
+        this.nodes = nodes;
+        this.nodeIndices = nodeIndices;
+        this.cyNodeToId = cyNodeToId;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.weights = weights;
+    }
+
+    /**
+     * Creates the key of the cache for a network and its weight settings
+     *      the column and the penalty are not used by the unweighted option
+     * @param network          the network to run PathLinker on
+     * @param edgeWeightType   the edge weight type
+     * @param weightColumnName the edge weight column
+     * @param edgePenalty      the edge penalty
+     * @param undirected       whether the network is treated as undirected
+     * @return the key the network is prepared and cached under
+     */
+    public static Object cacheKey(CyNetwork network, EdgeWeightType edgeWeightType,
+            String weightColumnName, double edgePenalty, boolean undirected) {
+        boolean weighted = edgeWeightType != EdgeWeightType.UNWEIGHTED;
+        return Arrays.asList(network.getSUID(), weighted ? weightColumnName : null, edgeWeightType,
+                weighted ? edgePenalty : null, undirected);
+    }
+
+    /**
+     * Getter method of a cached prepared network
+     * @param key     the network and weight settings the network was prepared with
+     * @param network the network to run PathLinker on
+     * @return the prepared network, or null if it is not cached or the network changed since
+     */
+    public static synchronized PreparedNetwork getCached(Object key, CyNetwork network) {
+        PreparedNetwork prepared = cache.get(key);
+        if (prepared != null && (prepared.networkNodeCount != network.getNodeCount()
+                || prepared.networkEdgeCount != network.getEdgeCount())) {
+            cache.remove(key);
+            prepared = null;
+        }
+
+        if (prepared != null)
+            hitCount.incrementAndGet();
+        else
+            missCount.incrementAndGet();
+
+        return prepared;
+    }
+
+    /**
+     * Starts the preparation of a network, to be called before the network is read
+     *      the weight column is watched from then on, so its changes bump the generation
+     * @param weightColumnName the edge weight column the weights are read from, null for unweighted networks
+     * @return the generation the preparation starts at, to pass to cache
+     */
+    public static synchronized long startPreparation(String weightColumnName) {
+        if (weightColumnName != null)
+            watchedColumns.add(weightColumnName);
+
+        return generation;
+    }
+
+    /**
+     * Adds a prepared network to the cache, evicting the least recently used one if the cache is full
+     *      the network is not cached if it or a column it was read from was invalidated since
+     *      its preparation started, as it may hold values read before the change
+     * @param key        the network and weight settings the network was prepared with
+     * @param prepared   the prepared network
+     * @param startedAt  the generation returned by startPreparation before the network was read
+     * @return true if the network was cached, otherwise false
+     */
+    public static synchronized boolean cache(Object key, PreparedNetwork prepared, long startedAt) {
+        if (isInvalidatedSince(networkGenerations.get(prepared.networkSUID), startedAt)
+                || isInvalidatedSince(columnGenerations.get(CyNetwork.NAME), startedAt)
+                || (prepared.weightColumnName != null
+                        && isInvalidatedSince(columnGenerations.get(prepared.weightColumnName), startedAt)))
+            return false;
+
+        cache.put(key, prepared);
+        return true;
+    }
+
+    /**
+     * Check if the last invalidation of a network or column came after a generation
+     * @param invalidatedAt the generation of the last invalidation, null if there was none
+     * @param startedAt     the generation a preparation started at
+     * @return true if the invalidation came after the generation, otherwise false
+     */
+    private static boolean isInvalidatedSince(Long invalidatedAt, long startedAt) {
+        return invalidatedAt != null && invalidatedAt > startedAt;
+    }
+
+    /**
+     * Removes the prepared networks of a network from the cache
+     *      called when nodes or edges are added to or removed from the network
+     * @param networkSUID the SUID of the network
+     */
+    public static synchronized void invalidateNetwork(long networkSUID) {
+        networkGenerations.put(networkSUID, ++generation);
+
+        Iterator<PreparedNetwork> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().networkSUID == networkSUID)
+                iterator.remove();
+        }
+    }
+
+    /**
+     * Removes the prepared networks read from a column from the cache
+     *      called when values of the column are set. Networks of any table are removed,
+     *      as the event of a network's edge table may come from its shared table. Every
+     *      prepared network holds the node names, so a change of the name column removes all
+     * @param columnName the name of the column
+     */
+    public static synchronized void invalidateColumn(String columnName) {
+        columnGenerations.put(columnName, ++generation);
+
+        Iterator<PreparedNetwork> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            PreparedNetwork prepared = iterator.next();
+            if (CyNetwork.NAME.equals(columnName) || columnName.equals(prepared.weightColumnName))
+                iterator.remove();
+        }
+    }
+
+    /**
+     * Getter method of the watched columns
+     * @return the names of the columns networks were prepared from, the node name column included
+     */
+    public static synchronized Set<String> getWatchedColumns() {
+        return new HashSet<String>(watchedColumns);
+    }
+
+    /**
+     * Setter method of the cache size
+     * @param cacheSize the number of prepared networks kept in the cache, 0 to disable caching
+     */
+    public static synchronized void setCacheSize(int cacheSize) {
+        PreparedNetwork.cacheSize = cacheSize;
+
+        Iterator<PreparedNetwork> iterator = cache.values().iterator();
+        while (cache.size() > cacheSize) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Sets the cache size from the CACHE_SIZE_PROPERTY of the Cytoscape properties
+     *      the cache size is left as it is if the property is not set or not a valid size
+     * @param properties the Cytoscape properties
+     * @return true if the cache size was set, otherwise false
+     */
+    public static boolean configureCacheSize(Properties properties) {
+        String value = properties != null ? properties.getProperty(CACHE_SIZE_PROPERTY) : null;
+        if (value == null)
+            return false;
+
+        try {
+            int size = Integer.parseInt(value.trim());
+            if (size < 0)
+                return false;
+
+            setCacheSize(size);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Getter method of the cache size
+     * @return the number of prepared networks kept in the cache
+     */
+    public static synchronized int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Getter method of the number of cache hits
+     * @return number of lookups that found a prepared network in the cache
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Getter method of the number of cache misses
+     * @return number of lookups that found no prepared network in the cache
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Removes every prepared network from the cache
+     */
+    public static synchronized void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Getter method of the landmark index, building it on the weights of the prepared
+     *      network the first time a run asks for it
+     * @return the landmark index of the network
+     */
+    public synchronized LandmarkIndex getLandmarkIndex() {
+        if (landmarkIndex == null) {
+            GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, null, null);
+            landmarkIndex = LandmarkIndex.build(graph, LandmarkIndex.DEFAULT_LANDMARK_COUNT);
+        }
+
+        return landmarkIndex;
+    }
+
+    /**
+     * Getter method of the distances to a target set
+     *      runs on the same targets share the distances, whatever their sources
+     * @param targets the positions of the targets in the node list
+     * @return the distances to the target set, computed by the first run that asks for them
+     */
+    public synchronized TargetDistances getTargetDistances(BitSet targets) {
+        TargetDistances distances = targetDistances.get(targets);
+        if (distances == null) {
+            distances = new TargetDistances();
+            targetDistances.put((BitSet) targets.clone(), distances);
+        }
+
+        return distances;
+    }
+
+    /**
+     * Getter method of the nodes
+     * @return the nodes of the network, the edges refer to their positions
+     */
+    public List<CyNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter method of the node positions
+     * @return the position of each node in the node list
+     */
+    public Map<CyNode, Integer> getNodeIndices() {
+        return nodeIndices;
+    }
+
+    /**
+     * Getter method of the node names
+     * @return the name of each node of the network
+     */
+    public Map<CyNode, String> getCyNodeToId() {
+        return cyNodeToId;
+    }
+
+    /**
+     * Getter method of the nodes by name, built in the order of the node list the first time
+     *      it is asked for, so a name shared by several nodes maps to the last of them as in
+     *      PathLinkerModelParams
+     * @return the node of each name
+     */
+    public synchronized Map<String, CyNode> getIdToCyNode() {
+        if (idToCyNode == null) {
+            idToCyNode = new HashMap<String, CyNode>(nodes.size() * 2);
+            for (CyNode node : nodes)
+                idToCyNode.put(cyNodeToId.get(node), node);
+        }
+
+        return idToCyNode;
+    }
+
+    /**
+     * Getter method of the number of edges
+     * @return number of edges of the prepared network
+     */
+    public int edgeCount() {
+        return edgeSources.length;
+    }
+
+    /**
+     * Getter method of the edge sources
+     * @return the position of the source node of each edge
+     */
+    public int[] getEdgeSources() {
+        return edgeSources;
+    }
+
+    /**
+     * Getter method of the edge targets
+     * @return the position of the target node of each edge
+     */
+    public int[] getEdgeTargets() {
+        return edgeTargets;
+    }
+
+    /**
+     * Getter method of the weights
+     * @return the weight of each edge used by the algorithm
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+}
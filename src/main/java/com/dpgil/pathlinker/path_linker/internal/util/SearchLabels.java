@@ -0,0 +1,109 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Reusable labels of a single-source search over a GraphSnapshot
+ *      Holds the tentative distance, the parent and the processed flag of every node
+ *      along with the heap of the search, in primitive arrays indexed by snapshot id.
+ *      A label only counts when its stamp equals the current generation, so starting
+ *      a new search advances the generation instead of refilling the arrays, and a
+ *      Yen run reuses the same arrays for every one of its spur searches
+ */
+public class SearchLabels {
+
+    /** the generation in which the distance and parent of each node were last set */
+    private final int[] stamps;
+    /** the generation in which each node was last processed */
+    private final int[] doneStamps;
+    /** the tentative distance of each node, valid only when stamped with the current generation */
+    private final double[] distances;
+    /** the parent of each node on its best path seen so far, valid only when stamped with the current generation */
+    private final int[] parents;
+    /** the heap of nodes on the border of the search */
+    private final IndexedDaryHeap heap;
+    /** the current generation, labels stamped with any other value are unset */
+    private int generation = 1;
+
+    /**
+     * Constructor of unset labels
+     * @param nodeCount the number of nodes in the snapshot
+     */
+    public SearchLabels(int nodeCount) {
+        this.stamps = new int[nodeCount];
+        this.doneStamps = new int[nodeCount];
+        this.distances = new double[nodeCount];
+        this.parents = new int[nodeCount];
+        this.heap = new IndexedDaryHeap(nodeCount);
+    }
+
+    /**
+     * Unsets every label and empties the heap for a new search
+     *      runs in time proportional to the nodes left in the heap, the labels
+     *      are only rewritten when the generation counter overflows
+     */
+    public void reset() {
+        heap.clear();
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(doneStamps, 0);
+            generation = 1;
+        } else
+            generation++;
+    }
+
+    /**
+     * Getter method of the heap of the search
+     * @return the heap of nodes on the border of the search
+     */
+    public IndexedDaryHeap getHeap() {
+        return heap;
+    }
+
+    /**
+     * Getter method of the tentative distance of a node
+     * @param node the snapshot id of the node
+     * @return the best distance seen so far, or positive infinity if the node was not reached
+     */
+    public double getDistance(int node) {
+        return stamps[node] == generation ? distances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Getter method of the parent of a node
+     * @param node the snapshot id of the node
+     * @return the snapshot id of the parent on the best path seen so far, or -1 if none
+     */
+    public int getParent(int node) {
+        return stamps[node] == generation ? parents[node] : -1;
+    }
+
+    /**
+     * Sets the tentative distance and parent of a node
+     * @param node     the snapshot id of the node
+     * @param distance the best distance seen so far
+     * @param parent   the snapshot id of the parent on that path, -1 for the root of the search
+     */
+    public void setLabel(int node, double distance, int parent) {
+        stamps[node] = generation;
+        distances[node] = distance;
+        parents[node] = parent;
+    }
+
+    /**
+     * Check if a node was processed
+     * @param node the snapshot id of the node
+     * @return true if the node was marked as processed since the last reset, otherwise false
+     */
+    public boolean isDone(int node) {
+        return doneStamps[node] == generation;
+    }
+
+    /**
+     * Marks a node as processed, its distance is final
+     * @param node the snapshot id of the node
+     */
+    public void setDone(int node) {
+        doneStamps[node] = generation;
+    }
+}
@@ -0,0 +1,105 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+/**
+ * Shortest path tree computed by a single source Dijkstra search on a GraphSnapshot
+ *      Stores the distance of every node from the root and the edge connecting each
+ *      node to its parent in the tree, both as primitive arrays indexed by snapshot id
+ *
+ * For a forward tree the parent of a node is the previous node on its shortest path from the root.
+ *      For a reverse tree, computed over incoming edges, the parent is the next node on
+ *      its shortest path to the root
+ */
+public class ShortestPathTree {
+
+    /** the snapshot the tree was computed on */
+    private final GraphSnapshot graph;
+    /** the snapshot id of the root of the tree */
+    private final int root;
+    /** whether the tree was computed over incoming edges */
+    private final boolean reverse;
+    /** the distance of each node from or to the root */
+    private final double[] distances;
+    /** the edge connecting each node to its parent, -1 for the root and unreachable nodes */
+    private final int[] parentEdges;
+
+    /**
+     * Constructor of the tree
+     * @param graph       the snapshot the tree was computed on
+     * @param root        the snapshot id of the root
+     * @param reverse     whether the tree was computed over incoming edges
+     * @param distances   the distance of each node from or to the root
+     * @param parentEdges the edge connecting each node to its parent
+     */
+    ShortestPathTree(GraphSnapshot graph, int root, boolean reverse, double[] distances, int[] parentEdges) {
+        this.graph = graph;
+        this.root = root;
+        this.reverse = reverse;
+        this.distances = distances;
+        this.parentEdges = parentEdges;
+    }
+
+    /**
+     * Getter method of the root
+     * @return the snapshot id of the root of the tree
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Getter method of the direction of the tree
+     * @return true if the tree was computed over incoming edges, otherwise false
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * Getter method of the distances
+     *      the returned array is shared with the tree and must not be modified
+     * @return the distance of each node, indexed by snapshot id
+     */
+    public double[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Getter method of the distance of a node
+     * @param node the snapshot id of the node
+     * @return the distance of the node from or to the root
+     */
+    public double getDistance(int node) {
+        return distances[node];
+    }
+
+    /**
+     * Check if a node is connected to the root
+     * @param node the snapshot id of the node
+     * @return true if the node is the root or has a parent, otherwise false
+     */
+    public boolean isReachable(int node) {
+        return node == root || parentEdges[node] != -1;
+    }
+
+    /**
+     * Getter method of the edge connecting a node to its parent
+     * @param node the snapshot id of the node
+     * @return the snapshot id of the edge, -1 for the root and unreachable nodes
+     */
+    public int getParentEdge(int node) {
+        return parentEdges[node];
+    }
+
+    /**
+     * Getter method of the parent of a node
+     * @param node the snapshot id of the node
+     * @return the snapshot id of the parent, -1 for the root and unreachable nodes
+     */
+    public int getParent(int node) {
+        int edge = parentEdges[node];
+        if (edge == -1)
+            return -1;
+
+        return reverse ? graph.getTarget(edge) : graph.getSource(edge);
+    }
+}
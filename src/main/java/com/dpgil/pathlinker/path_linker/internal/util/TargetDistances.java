@@ -0,0 +1,84 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The distances from every node of a prepared network to a set of targets
+ *      Yen's algorithm uses them as the A* heuristic of its spur searches and computes
+ *      them with a reverse Dijkstra search from the super target. The search follows
+ *      every edge, hidden or not, with the weights of the prepared network, which the
+ *      hidden edges keep in every run. Hiding edges only lengthens the paths, so the
+ *      distances stay admissible and consistent for the searches that skip them. No node
+ *      reaches the super target through the super source, so the distances only depend
+ *      on the prepared network and the target set, not on the sources of a run.
+ *      They are computed by the first run on a target set and reused by the later runs,
+ *      which only recompute the distance of their super source
+ *
+ * The distances are kept by the PreparedNetwork they were computed on, so they are
+ *      dropped along with it when the network or its edge weight column changes
+ */
+public class TargetDistances {
+
+    /** the number of runs that reused the distances of an earlier run */
+    private static final AtomicLong hitCount = new AtomicLong();
+    /** the number of runs that computed the distances */
+    private static final AtomicLong missCount = new AtomicLong();
+
+    /** the distance of each node to the super target, null until the first run computes them */
+    private double[] distances;
+
+    /**
+     * Getter method of the distances of a run to its super target
+     *      computes the distances if no earlier run on the same targets and hidden edges did.
+     *      Such runs wait for each other, so the distances are computed once
+     * @param graph    the snapshot of the run, built from the prepared network and the target set
+     * @param targetId the snapshot id of the target to search outward from
+     * @return the distance of each node to the target, indexed by snapshot id, owned by the caller
+     */
+    public synchronized double[] getDistances(GraphSnapshot graph, int targetId) {
+        // only the distances to the super target are shared by the runs on the same targets
+        if (targetId != graph.getSuperTargetId())
+            return Algorithms.reverseSingleSourceDijkstra(graph, targetId);
+
+        if (distances == null || distances.length != graph.nodeCount()) {
+            distances = Algorithms.reverseSingleSourceDijkstra(graph, targetId);
+            missCount.incrementAndGet();
+        } else
+            hitCount.incrementAndGet();
+
+        double[] runDistances = distances.clone();
+
+        // the super source is the only node whose distance depends on the sources,
+        // its edges lead to the sources at no cost
+        int superSource = graph.getSuperSourceId();
+        if (superSource >= 0) {
+            int[] outOffsets = graph.outOffsets();
+            int[] outEdges = graph.outEdges();
+            double distance = Algorithms.INFINITY;
+            for (int i = outOffsets[superSource]; i < outOffsets[superSource + 1]; i++) {
+                int edge = outEdges[i];
+                distance = Math.min(distance, runDistances[graph.getTarget(edge)] + graph.getWeight(edge));
+            }
+
+            runDistances[superSource] = distance;
+        }
+
+        return runDistances;
+    }
+
+    /**
+     * Getter method of the number of cache hits
+     * @return number of runs that reused the distances of an earlier run
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Getter method of the number of cache misses
+     * @return number of runs that computed the distances
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+}
@@ -585,10 +585,14 @@ public class PathLinkerControlPanel extends JPanel implements CytoPanelComponent
 		// obtain results from the runKSPTask
 		_model = runKSPTask.getResults(PathLinkerModel.class);
 
+		// the user cancelled the run, nothing to report
+		if (_model.isCancelled())
+		    return false;
+
 		// check for not path found error
 		if (_model.getOutputK() == 0) { 
 		    JOptionPane.showMessageDialog(null, 
-		            "No paths found", 
+		            _model.isTruncated() ? "No paths found before the algorithm stopped at a limit" : "No paths found", 
 		            "Error Message", JOptionPane.ERROR_MESSAGE);
 		    return false;
 		}
@@ -12,18 +12,25 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import org.cytoscape.model.NetworkTestSupport;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.work.TaskMonitor;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModel;
 import com.dpgil.pathlinker.path_linker.internal.model.PathLinkerModelParams;
+import com.dpgil.pathlinker.path_linker.internal.task.RunKSPTask;
 import com.dpgil.pathlinker.path_linker.internal.util.EdgeWeightType;
+import com.dpgil.pathlinker.path_linker.internal.util.KSPAlgorithm;
+import com.dpgil.pathlinker.path_linker.internal.util.PreparedNetwork;
 import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
 
 /** JUnit Test class for the PathLinker */
@@ -520,6 +527,259 @@ public class PathLinkerModelTest {
 		assertEquals(ans, resultDir); //test the result
 	}
 
+	/**
+	 * Test: to test that a run stopped by a limit before it found the paths of length 0
+	 * of the nodes that are both sources and targets ends without any path
+	 * network file (input file): graph-dir_human-interactome.txt
+	 * @throws IOException
+	 * @throws URISyntaxException 
+	 */
+	@Test
+	public void testLimitBelowCommonSourcesTargets() throws IOException, URISyntaxException {
+		//the three sources are also targets, so the first three paths found are of length 0
+		target = source;
+
+		//the deadline passes before the first path is found
+		modelSetUp(originalNetworkDir, 10, EdgeWeightType.PROBABILITIES, true);
+		testModel.setMaxRuntimeMs(0L);
+		testModel.runKSP();
+
+		assertTrue(testModel.isTruncated());
+		assertEquals(0, testModel.getResult().size());
+		assertEquals(0, testModel.getOutputK());
+
+		//the candidate limit stops the run as soon as the algorithm keeps a candidate path
+		modelSetUp(originalNetworkDir, 10, EdgeWeightType.PROBABILITIES, true);
+		testModel.setMaxCandidatePaths(0);
+		testModel.runKSP();
+
+		assertTrue(testModel.isTruncated());
+		assertEquals(0, testModel.getResult().size());
+		assertEquals(0, testModel.getOutputK());
+	}
+
+	/**
+	 * Test: to test that the candidate limits stop both algorithms within the iteration
+	 * that outgrows them, keeping the paths accepted before
+	 * network file (input file): graph-dir_human-interactome.txt
+	 * @throws IOException
+	 * @throws URISyntaxException 
+	 */
+	@Test
+	public void testCandidateLimitsStopIteration() throws IOException, URISyntaxException {
+		KSPAlgorithm[] algorithms = {KSPAlgorithm.YEN, KSPAlgorithm.LAZY_YEN};
+
+		for (KSPAlgorithm algorithm : algorithms) {
+			//the first candidate path found after the shortest path outgrows the limit
+			modelSetUp(originalNetworkDir, 50, EdgeWeightType.PROBABILITIES, false);
+			testModel.setKspAlgorithm(algorithm);
+			testModel.setMaxCandidateBytes(1L);
+			testModel.runKSP();
+
+			assertTrue(algorithm.toString(), testModel.isTruncated());
+			assertEquals(algorithm.toString(), 1, testModel.getOutputK());
+
+			//a limit the run doesn't reach leaves it untruncated
+			modelSetUp(originalNetworkDir, 50, EdgeWeightType.PROBABILITIES, false);
+			testModel.setKspAlgorithm(algorithm);
+			testModel.setMaxCandidatePaths(Integer.MAX_VALUE);
+			testModel.setMaxCandidateBytes(Long.MAX_VALUE);
+			testModel.runKSP();
+
+			assertFalse(algorithm.toString(), testModel.isTruncated());
+			assertEquals(algorithm.toString(), 50, testModel.getOutputK());
+		}
+	}
+
+	/**
+	 * Test: to test that the lazy Yen engine ranks the paths exactly as Yen's algorithm,
+	 * including the order of the tied paths and the tied paths kept when the kth path is tied
+	 * network file (input file): graph-dir_human-interactome.txt
+	 *                            graph-undir_human-interactome.txt
+	 *                            graph-mixed_human-interactome.txt
+	 * @throws IOException
+	 * @throws URISyntaxException 
+	 */
+	@Test
+	public void testLazyYenMatchesYen() throws IOException, URISyntaxException {
+		CyNetwork[] networks = {originalNetworkDir, originalNetworkUndir, originalNetworkMixed};
+		EdgeWeightType[] edgeWeightTypes = {EdgeWeightType.UNWEIGHTED, EdgeWeightType.ADDITIVE, EdgeWeightType.PROBABILITIES};
+		boolean[] ties = {false, true};
+		int[] ks = {5, 20, 50};
+
+		for (CyNetwork network : networks) {
+			for (EdgeWeightType edgeWeightType : edgeWeightTypes) {
+				for (boolean tie : ties) {
+					for (int k : ks) {
+						includePathScoreTies = tie;
+
+						modelSetUp(network, k, edgeWeightType, false);
+						testModel.setKspAlgorithm(KSPAlgorithm.YEN);
+						testModel.runKSP();
+						ArrayList<String> yen = pathListToStringList(testModel.getResult());
+
+						modelSetUp(network, k, edgeWeightType, false);
+						testModel.setKspAlgorithm(KSPAlgorithm.LAZY_YEN);
+						testModel.runKSP();
+						ArrayList<String> lazy = pathListToStringList(testModel.getResult());
+
+						//the lists are compared in order, the rank of each path included
+						assertEquals(edgeWeightType + " k=" + k + " ties=" + tie, yen, lazy);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test: to test that the task running the ksp algorithm reports its progress with every
+	 * path found up to all k paths, stops without any path when cancelled during the run or
+	 * before it, and reports a run stopped at the runtime limit as truncated
+	 * network file (input file): graph-dir_human-interactome.txt
+	 * @throws Exception
+	 */
+	@Test
+	public void testRunKSPTaskProgressAndCancel() throws Exception {
+		//the progress grows with every path up to 1
+		modelSetUp(originalNetworkDir, 50, EdgeWeightType.PROBABILITIES, false);
+		RunKSPTask task = new RunKSPTask(originalNetworkDir, modelParams);
+		RecordingTaskMonitor monitor = new RecordingTaskMonitor(task, 0);
+		task.run(monitor);
+
+		PathLinkerModel model = task.getResults(PathLinkerModel.class);
+		assertEquals(50, model.getOutputK());
+		assertEquals(50, monitor.progress.size());
+		for (int i = 0; i < monitor.progress.size(); i++)
+			assertEquals("path " + i, (i + 1) / 50.0, monitor.progress.get(i), 1e-9);
+		assertEquals("Running KSP algorithm success.", monitor.statusMessage);
+
+		//cancelled once the third path is found, no further path is computed
+		modelSetUp(originalNetworkDir, 50, EdgeWeightType.PROBABILITIES, false);
+		task = new RunKSPTask(originalNetworkDir, modelParams);
+		monitor = new RecordingTaskMonitor(task, 3);
+		task.run(monitor);
+
+		model = task.getResults(PathLinkerModel.class);
+		assertTrue(model.isCancelled());
+		assertEquals(3, monitor.progress.size());
+		assertEquals(0, model.getResult().size());
+		assertEquals(0, model.getOutputK());
+		assertEquals("Running KSP algorithm cancelled.", monitor.statusMessage);
+
+		//cancelled before the model is created
+		modelSetUp(originalNetworkDir, 50, EdgeWeightType.PROBABILITIES, false);
+		task = new RunKSPTask(originalNetworkDir, modelParams);
+		monitor = new RecordingTaskMonitor(task, 0);
+		task.cancel();
+		task.run(monitor);
+
+		model = task.getResults(PathLinkerModel.class);
+		assertTrue(model.isCancelled());
+		assertTrue(monitor.progress.isEmpty());
+		assertEquals(0, model.getOutputK());
+		assertEquals("Running KSP algorithm cancelled.", monitor.statusMessage);
+
+		//5000 paths can't be found within 1 ms, the paths found before are kept
+		modelSetUp(originalNetworkDir, 5000, EdgeWeightType.PROBABILITIES, false);
+		modelParams.maxRuntimeMs = 1L;
+		task = new RunKSPTask(originalNetworkDir, modelParams);
+		monitor = new RecordingTaskMonitor(task, 0);
+		task.run(monitor);
+
+		model = task.getResults(PathLinkerModel.class);
+		assertFalse(model.isCancelled());
+		assertTrue(model.isTruncated());
+		assertTrue(model.getOutputK() < 5000);
+		assertEquals("Running KSP algorithm stopped at a limit, " + model.getOutputK() + " paths found.",
+				monitor.statusMessage);
+	}
+
+	/**
+	 * Test: to test that running the ksp algorithm leaves the network untouched, no
+	 * subnetwork is added to its root network and its nodes and edges stay the same,
+	 * however many runs are done
+	 * network file (input file): graph-dir_human-interactome.txt
+	 *                            graph-undir_human-interactome.txt
+	 *                            graph-mixed_human-interactome.txt
+	 * @throws IOException
+	 * @throws URISyntaxException 
+	 */
+	@Test
+	public void testRunCreatesNoSubnetwork() throws IOException, URISyntaxException {
+		CyNetwork[] networks = {originalNetworkDir, originalNetworkUndir, originalNetworkMixed};
+		EdgeWeightType[] edgeWeightTypes = {EdgeWeightType.UNWEIGHTED, EdgeWeightType.ADDITIVE, EdgeWeightType.PROBABILITIES};
+
+		for (CyNetwork network : networks) {
+			CyRootNetwork root = ((CySubNetwork) network).getRootNetwork();
+			int subNetworkCount = root.getSubNetworkList().size();
+			int nodeCount = network.getNodeCount();
+			int edgeCount = network.getEdgeCount();
+
+			for (int run = 0; run < 10; run++) {
+				modelSetUp(network, 20, edgeWeightTypes[run % edgeWeightTypes.length], false);
+				testModel.runKSP();
+
+				assertEquals("run " + run, subNetworkCount, root.getSubNetworkList().size());
+				assertEquals("run " + run, nodeCount, network.getNodeCount());
+				assertEquals("run " + run, edgeCount, network.getEdgeCount());
+			}
+		}
+	}
+
+	/**
+	 * Test: to test that the validation hands the nodes, edges and edge weights it read,
+	 * or the prepared network it found, to the model, which runs on them without reading
+	 * the network again. The weights are changed after the validation without invalidating
+	 * the prepared networks, so only a model reading the network again would see them
+	 * network file (input file): graph-dir_human-interactome.txt
+	 * @throws IOException
+	 * @throws URISyntaxException 
+	 */
+	@Test
+	public void testValidationHandsNetworkToModel() throws IOException, URISyntaxException {
+		modelSetUp(originalNetworkDir, 20, EdgeWeightType.PROBABILITIES, false);
+		testModel.runKSP();
+		ArrayList<String> expected = pathListToStringList(testModel.getResult());
+
+		//a validation that found no prepared network hands over what it read
+		PreparedNetwork.invalidateColumn(edgeWeightColumnName);
+		modelSetUp(originalNetworkDir, 20, EdgeWeightType.PROBABILITIES, false);
+		assertNull(modelParams.getPreparedNetwork());
+		assertNotNull(modelParams.getPreparationStartedAt());
+		assertEquals(originalNetworkDir.getNodeCount(), modelParams.getNodeList().size());
+		assertEquals(originalNetworkDir.getEdgeCount(), modelParams.getEdgeList().size());
+		assertEquals(originalNetworkDir.getEdgeCount(), modelParams.getEdgeWeights().length);
+
+		//reverses the order of the weights in the edge table
+		List<CyEdge> edges = modelParams.getEdgeList();
+		double[] weights = modelParams.getEdgeWeights().clone();
+		for (int i = 0; i < edges.size(); i++)
+			originalNetworkDir.getRow(edges.get(i)).set("edge_weight", weights[weights.length - 1 - i]);
+
+		handValidationToModel();
+		testModel.runKSP();
+		assertEquals(expected, pathListToStringList(testModel.getResult()));
+
+		//a validation that found the network prepared by that run hands it over, and the
+		//model doesn't look it up again
+		modelSetUp(originalNetworkDir, 20, EdgeWeightType.PROBABILITIES, false);
+		assertNotNull(modelParams.getPreparedNetwork());
+		long hits = PreparedNetwork.getHitCount();
+		long misses = PreparedNetwork.getMissCount();
+
+		handValidationToModel();
+		testModel.runKSP();
+		assertEquals(expected, pathListToStringList(testModel.getResult()));
+		assertEquals(hits, PreparedNetwork.getHitCount());
+		assertEquals(misses, PreparedNetwork.getMissCount());
+
+		//a model reading the network again finds the changed weights
+		PreparedNetwork.invalidateColumn(edgeWeightColumnName);
+		modelSetUp(originalNetworkDir, 20, EdgeWeightType.PROBABILITIES, false);
+		testModel.runKSP();
+		assertThat(pathListToStringList(testModel.getResult()), not(expected));
+	}
+
 	/**
 	 * Sets up the required networks for testing
 	 * @throws IOException 
@@ -668,6 +928,21 @@ public class PathLinkerModelTest {
 	            modelParams.getCyNodeToId());
 	}
 
+	/**
+	 * Hands the network read by the validation of modelParams to testModel, as
+	 * RunKSPTask does
+	 */
+	private void handValidationToModel() {
+		testModel.setValidatedNetwork(
+				modelParams.getNodeList(),
+				modelParams.getNodeIndices(),
+				modelParams.getEdgeList(),
+				modelParams.getEdgeWeights());
+		testModel.setPreparedNetwork(
+				modelParams.getPreparedNetwork(),
+				modelParams.getPreparationStartedAt());
+	}
+
 	/**
 	 * Converts a path to a string concatenating the node names A path in the
 	 * network involving A -> B -> C would return A|B|C
@@ -698,4 +973,50 @@ public class PathLinkerModelTest {
 
 		return output;
 	}
+
+	/**
+	 * Task monitor recording the progress and the latest status message of a task,
+	 * which can cancel the task once it reported a number of paths
+	 */
+	private static class RecordingTaskMonitor implements TaskMonitor {
+
+		/** the task to cancel */
+		private final RunKSPTask task;
+		/** the number of progress reports after which the task is cancelled, 0 to never cancel it */
+		private final int cancelAt;
+		/** every progress reported, in order */
+		private final List<Double> progress = new ArrayList<Double>();
+		/** the latest status message */
+		private String statusMessage;
+
+		/**
+		 * Constructor of the monitor
+		 * @param task     the task to cancel
+		 * @param cancelAt the number of progress reports after which the task is cancelled, 0 to never cancel it
+		 */
+		private RecordingTaskMonitor(RunKSPTask task, int cancelAt) {
+			this.task = task;
+			this.cancelAt = cancelAt;
+		}
+
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+			this.progress.add(progress);
+			if (this.progress.size() == cancelAt)
+				task.cancel();
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+			this.statusMessage = statusMessage;
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+		}
+	}
 }
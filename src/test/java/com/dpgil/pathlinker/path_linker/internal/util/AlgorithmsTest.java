@@ -0,0 +1,817 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+
+/** JUnit Test class for the Algorithms */
+public class AlgorithmsTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODE_COUNT = 200;
+	/** the number of edges of the test network */
+	private static final int EDGE_COUNT = 800;
+
+	/** random number generator with a fixed seed, so every run tests the same networks */
+	private Random random;
+	/** the nodes of the test network */
+	private List<CyNode> nodes;
+	/** the name of each node of the test network */
+	private Map<CyNode, String> cyNodeToId;
+	/** the position of the source node of each edge */
+	private int[] edgeSources;
+	/** the position of the target node of each edge */
+	private int[] edgeTargets;
+	/** the weight of each edge */
+	private double[] weights;
+
+	/**
+	 * Creates a random network with positive edge weights
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(17);
+
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+		nodes = new ArrayList<CyNode>();
+		cyNodeToId = new HashMap<CyNode, String>();
+		for (int i = 0; i < NODE_COUNT; i++) {
+			CyNode node = network.addNode();
+			nodes.add(node);
+			cyNodeToId.put(node, "N" + i);
+		}
+
+		edgeSources = new int[EDGE_COUNT];
+		edgeTargets = new int[EDGE_COUNT];
+		weights = new double[EDGE_COUNT];
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			edgeSources[e] = random.nextInt(NODE_COUNT);
+			edgeTargets[e] = random.nextInt(NODE_COUNT);
+			weights[e] = 0.05 + random.nextDouble() * 2;
+		}
+	}
+
+	/**
+	 * Test: the bidirectional A* search finds paths of the same weight as the
+	 * forward A* search, from any spur node and with any extra hidden edges,
+	 * and finds no path exactly when the forward search finds none
+	 */
+	@Test
+	public void testBidirectionalAStarMatchesAStar() {
+		for (int run = 0; run < 20; run++) {
+			KSPContext context = randomContext(3, 1 + random.nextInt(5));
+			GraphSnapshot graph = context.getGraph();
+			int superTarget = graph.getSuperTargetId();
+			double[] minDists = Algorithms.heuristicDistances(context, superTarget);
+
+			for (int search = 0; search < 20; search++) {
+				// hides a few edges as the root path of a spur search would
+				context.resetHiddenEdges();
+				for (int i = 0; i < 20; i++)
+					context.hideEdge(random.nextInt(EDGE_COUNT));
+
+				int spurNode = random.nextInt(NODE_COUNT);
+				double rootDist = random.nextDouble();
+
+				PathWay forward = Algorithms.shortestPathAStar(context, spurNode, superTarget, minDists, rootDist);
+				PathWay bidirectional = Algorithms.bidirectionalAStar(context, spurNode, superTarget, minDists, rootDist);
+
+				if (forward == null) {
+					assertNull("spur node " + spurNode, bidirectional);
+					continue;
+				}
+
+				assertNotNull("spur node " + spurNode, bidirectional);
+				assertEquals("spur node " + spurNode, forward.weight, bidirectional.weight, 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Test: computing the spur paths in parallel yields the same paths in the same
+	 * order as computing them one after the other, including the order of the
+	 * tied paths, which the weights rounded to quarters make common
+	 */
+	@Test
+	public void testParallelSpurSearchMatchesSerial() {
+		for (int e = 0; e < EDGE_COUNT; e++)
+			weights[e] = 0.25 * (1 + random.nextInt(4));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int run = 0; run < 10; run++) {
+				List<CyNode> sources = randomNodes(3);
+				List<CyNode> targets = randomNodes(1 + random.nextInt(5));
+				boolean includePathScoreTies = run % 2 == 0;
+
+				KSPContext serial = context(sources, targets);
+				List<PathWay> serialPaths = ksp(serial, 50, includePathScoreTies);
+
+				KSPContext parallel = context(sources, targets);
+				parallel.setSpurSearchPool(pool);
+				List<PathWay> parallelPaths = ksp(parallel, 50, includePathScoreTies);
+
+				assertEquals("run " + run, serialPaths.size(), parallelPaths.size());
+				for (int i = 0; i < serialPaths.size(); i++) {
+					assertEquals("run " + run + " path " + i, serialPaths.get(i).nodeList, parallelPaths.get(i).nodeList);
+					assertEquals("run " + run + " path " + i, serialPaths.get(i).weight, parallelPaths.get(i).weight, 0);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Test: following the parent edges of a shortest path tree from any reachable
+	 * node leads to the root over edges whose weights sum up to the distance of the
+	 * node, for forward trees and for reverse trees that skip the hidden edges
+	 */
+	@Test
+	public void testShortestPathTreeParents() {
+		for (int run = 0; run < 10; run++) {
+			KSPContext context = randomContext(3, 1 + random.nextInt(5));
+			GraphSnapshot graph = context.getGraph();
+
+			int source = random.nextInt(NODE_COUNT);
+			ShortestPathTree forward = Algorithms.singleSourceDijkstraTree(graph, source);
+			assertArrayEquals("run " + run, Algorithms.singleSourceDijkstra(graph, source), forward.getDistances(), 0);
+			assertParentsGiveDistances("run " + run + " forward", graph, context, forward);
+
+			ShortestPathTree reverse = Algorithms.reverseSingleSourceDijkstraTree(context, graph.getSuperTargetId());
+			assertParentsGiveDistances("run " + run + " reverse", graph, context, reverse);
+		}
+	}
+
+	/**
+	 * Test: skipping the spur nodes before the deviation node of each accepted path,
+	 * as Lawler's modification does, still finds every one of the k shortest paths.
+	 * The network is a chain with random shortcuts and back edges, so most paths
+	 * share long prefixes, and its simple paths are few enough to be enumerated,
+	 * which gives the paths full Yen's algorithm finds
+	 */
+	@Test
+	public void testDeviationIndexMatchesFullYen() {
+		int nodeCount = 9;
+		for (int run = 0; run < 20; run++) {
+			// the chain, then random edges that are neither loops nor parallel edges
+			List<int[]> edges = new ArrayList<int[]>();
+			for (int v = 0; v + 1 < nodeCount; v++)
+				edges.add(new int[] {v, v + 1});
+			while (edges.size() < nodeCount + 16) {
+				int source = random.nextInt(nodeCount);
+				int target = random.nextInt(nodeCount);
+				boolean present = source == target;
+				for (int[] edge : edges)
+					present |= edge[0] == source && edge[1] == target;
+				if (!present)
+					edges.add(new int[] {source, target});
+			}
+
+			int[] sources = new int[edges.size()];
+			int[] targets = new int[edges.size()];
+			double[] edgeWeights = new double[edges.size()];
+			for (int e = 0; e < edges.size(); e++) {
+				sources[e] = edges.get(e)[0];
+				targets[e] = edges.get(e)[1];
+				edgeWeights[e] = 0.05 + random.nextDouble();
+			}
+
+			GraphSnapshot graph = new GraphSnapshot(nodes.subList(0, nodeCount), sources, targets, edgeWeights, null, null);
+			KSPContext context = new KSPContext(graph, cyNodeToId, new BitSet(edges.size()));
+
+			// every simple path from the first to the last node of the chain, by weight
+			ArrayList<PathWay> expected = new ArrayList<PathWay>();
+			ArrayList<CyNode> prefix = new ArrayList<CyNode>();
+			prefix.add(nodes.get(0));
+			simplePaths(graph, 0, nodeCount - 1, prefix, 0, expected);
+			Algorithms.sortResult(expected);
+
+			int maxK = Math.min(expected.size(), 1 + random.nextInt(150));
+			KSPIterator paths = Algorithms.kspIterator(context, 0, nodeCount - 1, maxK, false);
+			for (int i = 0; i < maxK; i++) {
+				assertTrue("run " + run + " path " + i, paths.hasNext());
+				PathWay path = paths.next();
+				assertEquals("run " + run + " path " + i, expected.get(i).weight, path.weight, 1e-9);
+				assertEquals("run " + run + " path " + i, expected.get(i).nodeList, path.nodeList);
+			}
+			assertFalse("run " + run, paths.hasNext());
+		}
+	}
+
+	/**
+	 * Test: the lazy engine, which resolves most deviations along the reverse shortest
+	 * path tree without a spur search, accepts the same paths in the same order and with
+	 * the same weights as Yen's algorithm, with distinct weights and with the weights
+	 * rounded to quarters, whose ties fall back to the spur search. The network has
+	 * no parallel edges, as the snapshot of a run merges them
+	 */
+	@Test
+	public void testLazyYenResolvesAlongTree() {
+		removeParallelEdges();
+
+		double[] distinctWeights = weights.clone();
+		for (int run = 0; run < 20; run++) {
+			boolean rounded = run >= 10;
+			for (int e = 0; e < EDGE_COUNT; e++)
+				weights[e] = rounded ? 0.25 * (1 + random.nextInt(4)) : distinctWeights[e];
+
+			List<CyNode> sources = randomNodes(3);
+			List<CyNode> targets = randomNodes(1 + random.nextInt(5));
+			boolean includePathScoreTies = run % 2 == 0;
+
+			List<PathWay> yenPaths = ksp(context(sources, targets), 100, includePathScoreTies);
+
+			KSPContext context = context(sources, targets);
+			GraphSnapshot graph = context.getGraph();
+			LazyYenKSP lazy = (LazyYenKSP) LazyYenKSP.kspIterator(context, graph.getSuperSourceId(),
+			        graph.getSuperTargetId(), 100, includePathScoreTies);
+			List<PathWay> lazyPaths = new ArrayList<PathWay>();
+			while (lazy.hasNext())
+				lazyPaths.add(lazy.next());
+
+			assertEquals("run " + run, yenPaths.size(), lazyPaths.size());
+			for (int i = 0; i < yenPaths.size(); i++) {
+				assertEquals("run " + run + " path " + i, yenPaths.get(i).nodeList, lazyPaths.get(i).nodeList);
+				assertEquals("run " + run + " path " + i, yenPaths.get(i).weight, lazyPaths.get(i).weight, 0);
+			}
+
+			if (!rounded)
+				assertTrue("run " + run, lazy.getTreeResolvedCount() > 0);
+		}
+	}
+
+	/**
+	 * Test: a byte limit below the estimate of the first candidates stops both engines
+	 * after the shortest path with the run marked as stopped, while a limit the run
+	 * never reaches leaves it whole. The estimate is 96 bytes per candidate path plus
+	 * 12 bytes per node
+	 */
+	@Test
+	public void testCandidateBytesLimitStopsRun() {
+		assertEquals(3 * 96 + 20 * 12, KSPContext.estimateCandidateBytes(3, 20));
+
+		List<CyNode> sources = randomNodes(3);
+		List<CyNode> targets = randomNodes(3);
+		for (boolean lazy : new boolean[] {false, true}) {
+			KSPContext limited = context(sources, targets);
+			limited.setCandidateLimits(null, 1L);
+			assertEquals("lazy " + lazy, 1, paths(limited, lazy).size());
+			assertTrue("lazy " + lazy, limited.wasStopped());
+
+			KSPContext unlimited = context(sources, targets);
+			unlimited.setCandidateLimits(null, Long.MAX_VALUE);
+			assertEquals("lazy " + lazy, 20, paths(unlimited, lazy).size());
+			assertFalse("lazy " + lazy, unlimited.wasStopped());
+		}
+	}
+
+	/**
+	 * Runs either engine for 20 paths between the super source and the super target of a context
+	 * @param context the context of the run
+	 * @param lazy    true to run the lazy engine, false to run Yen's algorithm
+	 * @return the paths in the order the engine accepted them
+	 */
+	private List<PathWay> paths(KSPContext context, boolean lazy) {
+		KSPIterator paths = iterator(context, lazy);
+
+		List<PathWay> result = new ArrayList<PathWay>();
+		while (paths.hasNext())
+			result.add(paths.next());
+
+		return result;
+	}
+
+	/**
+	 * Test: the compressed sparse row arrays of a snapshot list, for every node, exactly
+	 * the edges leaving it and the edges entering it, each group in the order of the edge
+	 * ids, and the snapshot keeps the ids of the nodes and edges it was built from
+	 */
+	@Test
+	public void testSnapshotAdjacency() {
+		GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, null, null);
+		assertEquals(NODE_COUNT, graph.nodeCount());
+		assertEquals(EDGE_COUNT, graph.edgeCount());
+
+		for (int v = 0; v < NODE_COUNT; v++) {
+			assertSame("node " + v, nodes.get(v), graph.getNode(v));
+			assertEquals("node " + v, v, graph.getNodeId(nodes.get(v)));
+		}
+
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			assertEquals("edge " + e, edgeSources[e], graph.getSource(e));
+			assertEquals("edge " + e, edgeTargets[e], graph.getTarget(e));
+			assertEquals("edge " + e, weights[e], graph.getWeight(e), 0);
+		}
+
+		assertAdjacency("out", graph.outOffsets(), graph.outEdges(), edgeSources);
+		assertAdjacency("in", graph.inOffsets(), graph.inEdges(), edgeTargets);
+	}
+
+	/**
+	 * Test: the packed key table of a snapshot finds the edge of every pair of nodes
+	 * that has one, the first edge of the pair for multi-edges as the edge list order
+	 * does, and no edge for the pairs without one, including the reverse of one way edges
+	 */
+	@Test
+	public void testFindEdge() {
+		GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, null, null);
+
+		Map<Long, Integer> firstEdges = new HashMap<Long, Integer>();
+		int multiEdges = 0;
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			Long pair = (long) edgeSources[e] * NODE_COUNT + edgeTargets[e];
+			if (firstEdges.containsKey(pair))
+				multiEdges++;
+			else
+				firstEdges.put(pair, e);
+		}
+		assertTrue(multiEdges > 0);
+
+		for (int source = 0; source < NODE_COUNT; source++) {
+			for (int target = 0; target < NODE_COUNT; target++) {
+				Integer expected = firstEdges.get((long) source * NODE_COUNT + target);
+				assertEquals(source + "-" + target, expected == null ? -1 : expected.intValue(),
+				        graph.findEdge(source, target));
+			}
+		}
+	}
+
+	/**
+	 * Test: the virtual super source and super target come after the nodes of the
+	 * network, without a CyNode, their edges of weight 0 come after the edges of the
+	 * network, and the paths between them start and end with null around the sources
+	 * and targets, weighing as much as the part inside the network
+	 */
+	@Test
+	public void testSuperSourceAndTarget() {
+		removeParallelEdges();
+
+		List<CyNode> sources = randomNodes(3);
+		List<CyNode> targets = randomNodes(4);
+		GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, sources, targets);
+
+		int superSource = graph.getSuperSourceId();
+		int superTarget = graph.getSuperTargetId();
+		assertEquals(NODE_COUNT + 2, graph.nodeCount());
+		assertEquals(NODE_COUNT, superSource);
+		assertEquals(NODE_COUNT + 1, superTarget);
+		assertNull(graph.getNode(superSource));
+		assertNull(graph.getNode(superTarget));
+
+		assertEquals(EDGE_COUNT + sources.size() + targets.size(), graph.edgeCount());
+		for (int e = 0; e < EDGE_COUNT; e++)
+			assertEquals("edge " + e, edgeSources[e], graph.getSource(e));
+		for (CyNode source : sources) {
+			int edge = graph.findEdge(superSource, graph.getNodeId(source));
+			assertTrue(edge >= EDGE_COUNT);
+			assertEquals(0, graph.getWeight(edge), 0);
+		}
+		for (CyNode target : targets) {
+			int edge = graph.findEdge(graph.getNodeId(target), superTarget);
+			assertTrue(edge >= EDGE_COUNT);
+			assertEquals(0, graph.getWeight(edge), 0);
+		}
+
+		// no edge enters the super source or leaves the super target
+		assertEquals(0, graph.inOffsets()[superSource + 1] - graph.inOffsets()[superSource]);
+		assertEquals(0, graph.outOffsets()[superTarget + 1] - graph.outOffsets()[superTarget]);
+
+		for (PathWay path : ksp(context(sources, targets), 20, false)) {
+			assertNull(path.get(0));
+			assertNull(path.get(path.size() - 1));
+			assertTrue(sources.contains(path.get(1)));
+			assertTrue(targets.contains(path.get(path.size() - 2)));
+
+			double weight = 0;
+			for (int i = 1; i + 2 < path.size(); i++)
+				weight += graph.getWeight(graph.findEdge(graph.getNodeId(path.get(i)), graph.getNodeId(path.get(i + 1))));
+			assertEquals(weight, path.weight, 1e-9);
+		}
+	}
+
+	/**
+	 * Test: two contexts with different hidden edges running at the same time on one
+	 * shared snapshot find the same paths as each of them running alone, as the
+	 * snapshot is read-only and every mutable state of a run lives in its context
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentContextsShareSnapshot() throws Exception {
+		List<CyNode> sources = randomNodes(3);
+		List<CyNode> targets = randomNodes(4);
+		final GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, sources, targets);
+
+		// the second run also hides a random tenth of the edges
+		final BitSet[] hidden = {hiddenEdges(sources, targets), hiddenEdges(sources, targets)};
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			if (random.nextInt(10) == 0)
+				hidden[1].set(e);
+		}
+
+		List<List<PathWay>> alone = new ArrayList<List<PathWay>>();
+		for (BitSet runHidden : hidden)
+			alone.add(ksp(new KSPContext(graph, cyNodeToId, runHidden), 50, true));
+		assertFalse(alone.get(0).equals(alone.get(1)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int run = 0; run < 5; run++) {
+				final CyclicBarrier start = new CyclicBarrier(2);
+				List<Future<List<PathWay>>> together = new ArrayList<Future<List<PathWay>>>();
+				for (final BitSet runHidden : hidden) {
+					together.add(executor.submit(new Callable<List<PathWay>>() {
+						@Override
+						public List<PathWay> call() throws Exception {
+							KSPContext context = new KSPContext(graph, cyNodeToId, runHidden);
+							start.await();
+							return ksp(context, 50, true);
+						}
+					}));
+				}
+
+				for (int i = 0; i < hidden.length; i++) {
+					List<PathWay> paths = together.get(i).get();
+					assertEquals("run " + run + " context " + i, alone.get(i).size(), paths.size());
+					for (int p = 0; p < paths.size(); p++) {
+						assertEquals("run " + run + " context " + i + " path " + p,
+						        alone.get(i).get(p).nodeList, paths.get(p).nodeList);
+						assertEquals("run " + run + " context " + i + " path " + p,
+						        alone.get(i).get(p).weight, paths.get(p).weight, 0);
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test: an edge mask holds exactly the edges added since its last clear, over many
+	 * clears, and once its generation counter wraps around neither the edges added in
+	 * the first generation nor those added in the last one come back
+	 */
+	@Test
+	public void testEdgeMaskClear() {
+		EdgeMask mask = new EdgeMask(EDGE_COUNT);
+		for (int round = 0; round < 50; round++) {
+			Set<Integer> added = new HashSet<Integer>();
+			for (int i = 0; i < 40; i++) {
+				int edge = random.nextInt(EDGE_COUNT);
+				mask.add(edge);
+				added.add(edge);
+			}
+
+			for (int e = 0; e < EDGE_COUNT; e++)
+				assertEquals("round " + round + " edge " + e, added.contains(e), mask.contains(e));
+			mask.clear();
+		}
+
+		// back to the first generation, the one the mask started with
+		EdgeMask wrapped = new EdgeMask(EDGE_COUNT);
+		wrapped.add(1);
+		for (int i = 1; i < Integer.MAX_VALUE; i++)
+			wrapped.clear();
+		wrapped.add(2);
+		assertTrue(wrapped.contains(2));
+
+		wrapped.clear();
+		assertFalse(wrapped.contains(1));
+		assertFalse(wrapped.contains(2));
+		wrapped.add(3);
+		assertTrue(wrapped.contains(3));
+	}
+
+	/**
+	 * Test: search labels reused for many searches, as the spur searches of a run reuse
+	 * them, hold only the labels of the current search, and once their generation
+	 * counter wraps around neither the labels of the first generation nor those of the
+	 * last one come back
+	 */
+	@Test
+	public void testSearchLabelsReset() {
+		SearchLabels labels = new SearchLabels(NODE_COUNT);
+		for (int search = 0; search < 50; search++) {
+			labels.reset();
+
+			Map<Integer, Double> distances = new HashMap<Integer, Double>();
+			Set<Integer> done = new HashSet<Integer>();
+			for (int i = 0; i < 20; i++) {
+				int node = random.nextInt(NODE_COUNT);
+				double distance = random.nextDouble();
+				labels.setLabel(node, distance, i - 1);
+				labels.getHeap().insertOrDecrease(node, distance);
+				distances.put(node, distance);
+				if (random.nextBoolean()) {
+					labels.setDone(node);
+					done.add(node);
+				}
+			}
+
+			for (int v = 0; v < NODE_COUNT; v++) {
+				Double distance = distances.get(v);
+				assertEquals("search " + search + " node " + v,
+				        distance == null ? Double.POSITIVE_INFINITY : distance, labels.getDistance(v), 0);
+				assertEquals("search " + search + " node " + v, done.contains(v), labels.isDone(v));
+				if (distance == null)
+					assertEquals("search " + search + " node " + v, -1, labels.getParent(v));
+			}
+		}
+
+		// the labels of the first generation, set before the first reset
+		SearchLabels wrapped = new SearchLabels(NODE_COUNT);
+		wrapped.setLabel(1, 1, -1);
+		wrapped.setDone(1);
+		for (int i = 1; i < Integer.MAX_VALUE; i++)
+			wrapped.reset();
+		wrapped.setLabel(2, 2, 1);
+		wrapped.setDone(2);
+		wrapped.getHeap().insert(2, 2);
+
+		// back to the first generation
+		wrapped.reset();
+		assertTrue(wrapped.getHeap().isEmpty());
+		for (int node = 1; node <= 2; node++) {
+			assertEquals("node " + node, Double.POSITIVE_INFINITY, wrapped.getDistance(node), 0);
+			assertEquals("node " + node, -1, wrapped.getParent(node));
+			assertFalse("node " + node, wrapped.isDone(node));
+		}
+	}
+
+	/**
+	 * Test: both engines compute nothing until the first path is requested, compute each
+	 * path only when it is requested, so a run cancelled after a few paths yields no
+	 * more, and once exhausted keep answering hasNext with false and next with
+	 * NoSuchElementException
+	 */
+	@Test
+	public void testIteratorStreamsLazily() {
+		List<CyNode> sources = randomNodes(3);
+		List<CyNode> targets = randomNodes(3);
+		for (boolean lazy : new boolean[] {false, true}) {
+			List<PathWay> all = paths(context(sources, targets), lazy);
+			assertEquals("lazy " + lazy, 20, all.size());
+
+			// cancelled after the third path
+			KSPContext context = context(sources, targets);
+			KSPIterator paths = iterator(context, lazy);
+			assertEquals("lazy " + lazy, 0, paths.getCandidateCount());
+			for (int i = 0; i < 3; i++) {
+				assertTrue("lazy " + lazy + " path " + i, paths.hasNext());
+				assertTrue("lazy " + lazy + " path " + i, paths.hasNext());
+				assertEquals("lazy " + lazy + " path " + i, all.get(i).nodeList, paths.next().nodeList);
+			}
+			context.cancel();
+			assertFalse("lazy " + lazy, paths.hasNext());
+			assertNextThrows("lazy " + lazy, paths);
+
+			// exhausted after the 20 paths
+			paths = iterator(context(sources, targets), lazy);
+			for (int i = 0; i < 20; i++)
+				assertEquals("lazy " + lazy + " path " + i, all.get(i).nodeList, paths.next().nodeList);
+			assertFalse("lazy " + lazy, paths.hasNext());
+			assertFalse("lazy " + lazy, paths.hasNext());
+			assertNextThrows("lazy " + lazy, paths);
+			assertNextThrows("lazy " + lazy, paths);
+
+			try {
+				paths.remove();
+				fail("lazy " + lazy + " removed a path");
+			} catch (UnsupportedOperationException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Runs Yen's algorithm between the super source and the super target of a context
+	 * @param context              the context of the run
+	 * @param maxK                 the number of shortest paths
+	 * @param includePathScoreTies the option to include all paths of equal length
+	 * @return the paths in the order the algorithm accepted them
+	 */
+	private List<PathWay> ksp(KSPContext context, int maxK, boolean includePathScoreTies) {
+		GraphSnapshot graph = context.getGraph();
+		KSPIterator paths = Algorithms.kspIterator(context, graph.getSuperSourceId(),
+		        graph.getSuperTargetId(), maxK, includePathScoreTies);
+
+		List<PathWay> result = new ArrayList<PathWay>();
+		while (paths.hasNext())
+			result.add(paths.next());
+
+		return result;
+	}
+
+	/**
+	 * Checks that the adjacency arrays of a snapshot group the edges by an endpoint,
+	 * in the order of their ids
+	 * @param message   the message of a failed check
+	 * @param offsets   the offset of the first edge of each node, and the edge count at the end
+	 * @param adjacency the edge ids grouped by node
+	 * @param endpoints the endpoint of each edge the edges are grouped by
+	 */
+	private void assertAdjacency(String message, int[] offsets, int[] adjacency, int[] endpoints) {
+		assertEquals(message, NODE_COUNT + 1, offsets.length);
+		assertEquals(message, 0, offsets[0]);
+		assertEquals(message, EDGE_COUNT, offsets[NODE_COUNT]);
+
+		for (int v = 0; v < NODE_COUNT; v++) {
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int e = 0; e < EDGE_COUNT; e++) {
+				if (endpoints[e] == v)
+					expected.add(e);
+			}
+
+			List<Integer> actual = new ArrayList<Integer>();
+			for (int i = offsets[v]; i < offsets[v + 1]; i++)
+				actual.add(adjacency[i]);
+
+			assertEquals(message + " node " + v, expected, actual);
+		}
+	}
+
+	/**
+	 * Creates an iterator of either engine over 20 paths between the super source and
+	 * the super target of a context
+	 * @param context the context of the run
+	 * @param lazy    true for the lazy engine, false for Yen's algorithm
+	 * @return the iterator, which hasn't computed any path yet
+	 */
+	private KSPIterator iterator(KSPContext context, boolean lazy) {
+		GraphSnapshot graph = context.getGraph();
+		return lazy
+		        ? LazyYenKSP.kspIterator(context, graph.getSuperSourceId(), graph.getSuperTargetId(), 20, false)
+		        : Algorithms.kspIterator(context, graph.getSuperSourceId(), graph.getSuperTargetId(), 20, false);
+	}
+
+	/**
+	 * Checks that an iterator without paths left throws on next
+	 * @param message the message of a failed check
+	 * @param paths   the iterator
+	 */
+	private void assertNextThrows(String message, KSPIterator paths) {
+		try {
+			paths.next();
+			fail(message + " returned a path past the last one");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Walks the parent edges of every reachable node of a tree to its root, checking
+	 * that the walk ends at the root, never takes a hidden edge of a reverse tree, and
+	 * sums up to the distance of the node
+	 * @param message the message of a failed check
+	 * @param graph   the snapshot the tree was computed on
+	 * @param context the context whose hidden edges the reverse tree skips
+	 * @param tree    the shortest path tree
+	 */
+	private void assertParentsGiveDistances(String message, GraphSnapshot graph, KSPContext context,
+	        ShortestPathTree tree) {
+		int reached = 0;
+		for (int v = 0; v < graph.nodeCount(); v++) {
+			if (!tree.isReachable(v)) {
+				assertTrue(message + " node " + v, Algorithms.isInf(tree.getDistance(v)));
+				continue;
+			}
+
+			reached++;
+			double sum = 0;
+			int node = v;
+			for (int hops = 0; node != tree.getRoot(); hops++) {
+				assertTrue(message + " node " + v + " walks a cycle", hops < graph.nodeCount());
+				int edge = tree.getParentEdge(node);
+				if (tree.isReverse())
+					assertFalse(message + " node " + v + " hidden edge " + edge, context.isHidden(edge));
+
+				sum += graph.getWeight(edge);
+				node = tree.getParent(node);
+			}
+
+			assertEquals(message + " node " + v, tree.getDistance(v), sum, 1e-9);
+		}
+
+		assertTrue(message, reached > 1);
+	}
+
+	/**
+	 * Enumerates the simple paths extending a prefix to a target by depth first search
+	 * @param graph  the snapshot of the network
+	 * @param node   the snapshot id of the last node of the prefix
+	 * @param target the snapshot id of the target
+	 * @param prefix the nodes of the prefix, in order
+	 * @param weight the weight of the prefix
+	 * @param paths  the list the paths to the target are added to
+	 */
+	private void simplePaths(GraphSnapshot graph, int node, int target, ArrayList<CyNode> prefix, double weight,
+	        List<PathWay> paths) {
+		if (node == target) {
+			paths.add(new PathWay(new ArrayList<CyNode>(prefix), cyNodeToId, weight));
+			return;
+		}
+
+		int[] offsets = graph.outOffsets();
+		for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+			int edge = graph.outEdges()[i];
+			CyNode next = graph.getNode(graph.edgeTargets()[edge]);
+			if (prefix.contains(next))
+				continue;
+
+			prefix.add(next);
+			simplePaths(graph, graph.edgeTargets()[edge], target, prefix, weight + graph.getWeight(edge), paths);
+			prefix.remove(prefix.size() - 1);
+		}
+	}
+
+	/**
+	 * Moves the edges parallel to an earlier edge to other random targets, so the
+	 * test network has no multi-edges, as the network of a run after merging them
+	 */
+	private void removeParallelEdges() {
+		Set<Long> pairs = new HashSet<Long>();
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			while (!pairs.add((long) edgeSources[e] * NODE_COUNT + edgeTargets[e]))
+				edgeTargets[e] = random.nextInt(NODE_COUNT);
+		}
+	}
+
+	/**
+	 * Creates the context of a run between random sources and targets, with the
+	 * edges into the sources and out of the targets hidden
+	 * @param sourceCount the number of sources
+	 * @param targetCount the number of targets
+	 * @return the context of the run
+	 */
+	private KSPContext randomContext(int sourceCount, int targetCount) {
+		return context(randomNodes(sourceCount), randomNodes(targetCount));
+	}
+
+	/**
+	 * Creates the context of a run between the given sources and targets, with
+	 * the edges into the sources and out of the targets hidden
+	 * @param sources the sources of the run
+	 * @param targets the targets of the run
+	 * @return the context of the run
+	 */
+	private KSPContext context(List<CyNode> sources, List<CyNode> targets) {
+		GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, sources, targets);
+		return new KSPContext(graph, cyNodeToId, hiddenEdges(sources, targets));
+	}
+
+	/**
+	 * Finds the edges a run between the given sources and targets hides, the edges
+	 * into the sources and out of the targets
+	 * @param sources the sources of the run
+	 * @param targets the targets of the run
+	 * @return the hidden edges
+	 */
+	private BitSet hiddenEdges(List<CyNode> sources, List<CyNode> targets) {
+		BitSet hidden = new BitSet(EDGE_COUNT);
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			if (sources.contains(nodes.get(edgeTargets[e])) || targets.contains(nodes.get(edgeSources[e])))
+				hidden.set(e);
+		}
+
+		return hidden;
+	}
+
+	/**
+	 * Picks distinct random nodes of the test network
+	 * @param count the number of nodes
+	 * @return the nodes
+	 */
+	private List<CyNode> randomNodes(int count) {
+		List<CyNode> picked = new ArrayList<CyNode>();
+		while (picked.size() < count) {
+			CyNode node = nodes.get(random.nextInt(NODE_COUNT));
+			if (!picked.contains(node))
+				picked.add(node);
+		}
+
+		return picked;
+	}
+}
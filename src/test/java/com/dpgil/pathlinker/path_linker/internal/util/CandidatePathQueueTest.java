@@ -0,0 +1,203 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.util.Algorithms.PathWay;
+
+/** JUnit Test class for the CandidatePathQueue */
+public class CandidatePathQueueTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODE_COUNT = 30;
+
+	/** random number generator with a fixed seed, so every run tests the same paths */
+	private Random random;
+	/** the nodes the candidate paths are made of */
+	private List<CyNode> nodes;
+	/** the name of each node */
+	private Map<CyNode, String> cyNodeToId;
+	/** the node sequences of the paths created so far, so every path is new */
+	private Set<List<CyNode>> created;
+
+	/**
+	 * Creates the nodes of the candidate paths
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(17);
+
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+		nodes = new ArrayList<CyNode>();
+		cyNodeToId = new HashMap<CyNode, String>();
+		for (int i = 0; i < NODE_COUNT; i++) {
+			CyNode node = network.addNode();
+			nodes.add(node);
+			cyNodeToId.put(node, "N" + i);
+		}
+
+		created = new HashSet<List<CyNode>>();
+	}
+
+	/**
+	 * Test: without ties the heaviest candidates beyond the capacity are evicted,
+	 * the one added last first among equal weights, and a path already in the
+	 * set is not added twice
+	 */
+	@Test
+	public void testEvictionWithoutTies() {
+		CandidatePathQueue queue = new CandidatePathQueue(false);
+		queue.setCapacity(3);
+
+		PathWay p5 = path(5), p1 = path(1), p3a = path(3), p3b = path(3), p2 = path(2), p4 = path(4);
+		assertTrue(queue.add(p5));
+		assertTrue(queue.add(p1));
+		assertTrue(queue.add(p3a));
+		assertFalse(queue.add(new PathWay(p1.nodeList, cyNodeToId, 1)));
+		assertEquals(3, queue.size());
+
+		// evicts p5, then the later of the two paths of weight 3, then p4 itself
+		assertTrue(queue.add(p3b));
+		assertTrue(queue.add(p2));
+		assertTrue(queue.add(p4));
+		assertEquals(3, queue.size());
+
+		assertPolls(queue, p1, p2, p3a);
+	}
+
+	/**
+	 * Test: with ties every candidate tied with the worst kept one stays beyond
+	 * the capacity, and a bucket is only evicted once the lighter candidates fill
+	 * the capacity on their own
+	 */
+	@Test
+	public void testEvictionWithTies() {
+		CandidatePathQueue queue = new CandidatePathQueue(true);
+		queue.setCapacity(2);
+
+		PathWay p1 = path(1), p3a = path(3), p3b = path(3), p3c = path(3), p2a = path(2), p2b = path(2);
+		queue.add(p1);
+		queue.add(p3a);
+		queue.add(p3b);
+		queue.add(p3c);
+		assertEquals(4, queue.size());
+
+		// the paths of weight 2 replace the whole bucket of weight 3
+		queue.add(p2a);
+		assertEquals(2, queue.size());
+		queue.add(p2b);
+		assertEquals(3, queue.size());
+
+		assertPolls(queue, p1, p2a, p2b);
+	}
+
+	/**
+	 * Test: shrinking the capacity to the number of paths still to accept, as
+	 * Yen's algorithm does after each accepted path, polls the same paths as an
+	 * unbounded set, both without and with ties
+	 */
+	@Test
+	public void testCapacityShrinksAsPathsAreAccepted() {
+		for (int run = 0; run < 20; run++) {
+			boolean keepTies = run % 2 == 1;
+			int maxK = 1 + random.nextInt(15);
+
+			CandidatePathQueue bounded = new CandidatePathQueue(keepTies);
+			CandidatePathQueue unbounded = new CandidatePathQueue(keepTies);
+
+			for (int accepted = 0; accepted < maxK; accepted++) {
+				bounded.setCapacity(maxK - accepted);
+				assertTrue("run " + run, bounded.size() <= maxK - accepted || keepTies);
+
+				// adds the candidates found from the latest accepted path
+				int count = random.nextInt(8);
+				for (int i = 0; i < count; i++) {
+					PathWay path = path(1 + random.nextInt(5));
+					bounded.add(path);
+					unbounded.add(path);
+				}
+
+				if (unbounded.isEmpty()) {
+					assertTrue("run " + run, bounded.isEmpty());
+					break;
+				}
+
+				assertEquals("run " + run + " path " + accepted, unbounded.poll(), bounded.poll());
+			}
+
+			drain(bounded);
+			drain(unbounded);
+		}
+	}
+
+	/**
+	 * Creates a path of random nodes that no earlier path of the test has
+	 * @param weight the weight of the path
+	 * @return the path
+	 */
+	private PathWay path(double weight) {
+		ArrayList<CyNode> nodeList;
+		do {
+			nodeList = new ArrayList<CyNode>();
+			int length = 2 + random.nextInt(5);
+			for (int i = 0; i < length; i++)
+				nodeList.add(nodes.get(random.nextInt(NODE_COUNT)));
+		} while (!created.add(nodeList));
+
+		return new PathWay(nodeList, cyNodeToId, weight);
+	}
+
+	/**
+	 * Polls every path of a queue and checks the paths come out as expected
+	 * @param queue    the queue
+	 * @param expected the paths the queue should hold, in the order they should be polled
+	 */
+	private void assertPolls(CandidatePathQueue queue, PathWay... expected) {
+		List<PathWay> polled = drain(queue);
+		assertEquals(expected.length, polled.size());
+		for (int i = 0; i < expected.length; i++)
+			assertSame("path " + i, expected[i], polled.get(i));
+	}
+
+	/**
+	 * Polls every path of a queue, checking that its node count covers exactly
+	 * the nodes of the paths it held
+	 * @param queue the queue
+	 * @return the polled paths in order
+	 */
+	private List<PathWay> drain(CandidatePathQueue queue) {
+		long nodeCount = queue.getNodeCount();
+		int size = queue.size();
+
+		List<PathWay> polled = new ArrayList<PathWay>();
+		long polledNodes = 0;
+		PathWay path;
+		while ((path = queue.poll()) != null) {
+			if (!polled.isEmpty())
+				assertTrue(polled.get(polled.size() - 1).weight <= path.weight);
+
+			polled.add(path);
+			polledNodes += path.size();
+		}
+
+		assertEquals(size, polled.size());
+		assertEquals(nodeCount, polledNodes);
+		assertEquals(0, queue.getNodeCount());
+		assertTrue(queue.isEmpty());
+		return polled;
+	}
+}
@@ -0,0 +1,143 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit Test class for the EdgeWeightLoader */
+public class EdgeWeightLoaderTest {
+
+	/** network whose edges are added in SUID order */
+	private CyNetwork network;
+	/** the nodes of the network */
+	private List<CyNode> nodes;
+	/** the edges of the network, in SUID order */
+	private List<CyEdge> edges;
+
+	/**
+	 * Creates a network with a chain of edges
+	 */
+	@Before
+	public void setUp() {
+		network = new NetworkTestSupport().getNetwork();
+
+		nodes = new ArrayList<CyNode>();
+		for (int i = 0; i < 20; i++)
+			nodes.add(network.addNode());
+
+		edges = new ArrayList<CyEdge>();
+		for (int i = 0; i + 1 < nodes.size(); i++)
+			edges.add(network.addEdge(nodes.get(i), nodes.get(i + 1), true));
+	}
+
+	/**
+	 * Test: the weights of a table whose rows were inserted out of SUID order
+	 * are the weights read from the row of each edge
+	 */
+	@Test
+	public void testRowsOutOfSUIDOrder() {
+		// adds the edges to a subnetwork in reverse order, so the rows of its
+		// edge table come in the reverse order of the SUIDs
+		CySubNetwork subnetwork = ((CySubNetwork) network).getRootNetwork()
+		        .addSubNetwork(nodes, new ArrayList<CyEdge>());
+		List<CyEdge> reversed = new ArrayList<CyEdge>(edges);
+		Collections.reverse(reversed);
+		for (CyEdge edge : reversed)
+			subnetwork.addEdge(edge);
+
+		subnetwork.getDefaultEdgeTable().createColumn("edge_weight", Double.class, false);
+		for (int i = 0; i < reversed.size(); i++)
+			subnetwork.getRow(reversed.get(i)).set("edge_weight", 0.5 + i);
+
+		// loads the edges in SUID order, neither the order of the rows nor their reverse
+		EdgeWeightLoader loader = EdgeWeightLoader.load(subnetwork, edges, "edge_weight");
+		assertFalse(loader.hasMissingValues());
+		for (int i = 0; i < edges.size(); i++) {
+			double expected = subnetwork.getRow(edges.get(i)).get("edge_weight", Double.class);
+			assertEquals(expected, loader.getWeights()[i], 0.);
+		}
+	}
+
+	/**
+	 * Test: the weights of a text column are parsed, and the edges with no value
+	 * or a value that is not a number are missing
+	 */
+	@Test
+	public void testMissingAndTextWeights() {
+		network.getDefaultEdgeTable().createColumn("edge_weight", String.class, false);
+		for (int i = 0; i < edges.size(); i++) {
+			if (i % 5 == 1)
+				network.getRow(edges.get(i)).set("edge_weight", "not a number");
+			else if (i % 5 != 3)
+				network.getRow(edges.get(i)).set("edge_weight", String.valueOf(i / 4.));
+		}
+
+		EdgeWeightLoader loader = EdgeWeightLoader.load(network, edges, "edge_weight");
+
+		int missing = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			if (i % 5 == 1 || i % 5 == 3) {
+				assertEquals(EdgeWeightLoader.MISSING_WEIGHT, loader.getWeights()[i], 0.);
+				missing++;
+			} else
+				assertEquals(i / 4., loader.getWeights()[i], 0.);
+		}
+		assertEquals(missing, loader.getMissingCount());
+		assertTrue(loader.hasMissingValues());
+	}
+
+	/**
+	 * Test: the weights of Integer, Long and Float columns are read as numbers,
+	 * and the edges with no value are missing
+	 */
+	@Test
+	public void testNumericColumnTypes() {
+		network.getDefaultEdgeTable().createColumn("int_weight", Integer.class, false);
+		network.getDefaultEdgeTable().createColumn("long_weight", Long.class, false);
+		network.getDefaultEdgeTable().createColumn("float_weight", Float.class, false);
+		for (int i = 0; i < edges.size(); i++) {
+			if (i % 4 == 2)
+				continue;
+
+			network.getRow(edges.get(i)).set("int_weight", i);
+			network.getRow(edges.get(i)).set("long_weight", (long) i * 3);
+			network.getRow(edges.get(i)).set("float_weight", i / 2f);
+		}
+
+		EdgeWeightLoader ints = EdgeWeightLoader.load(network, edges, "int_weight");
+		EdgeWeightLoader longs = EdgeWeightLoader.load(network, edges, "long_weight");
+		EdgeWeightLoader floats = EdgeWeightLoader.load(network, edges, "float_weight");
+		for (int i = 0; i < edges.size(); i++) {
+			if (i % 4 == 2) {
+				assertEquals(EdgeWeightLoader.MISSING_WEIGHT, ints.getWeights()[i], 0.);
+				assertEquals(EdgeWeightLoader.MISSING_WEIGHT, longs.getWeights()[i], 0.);
+				assertEquals(EdgeWeightLoader.MISSING_WEIGHT, floats.getWeights()[i], 0.);
+			} else {
+				assertEquals(i, ints.getWeights()[i], 0.);
+				assertEquals(i * 3, longs.getWeights()[i], 0.);
+				assertEquals(i / 2., floats.getWeights()[i], 0.);
+			}
+		}
+		assertEquals(5, ints.getMissingCount());
+	}
+
+	/**
+	 * Test: every weight is missing if the column does not exist
+	 */
+	@Test
+	public void testMissingColumn() {
+		EdgeWeightLoader loader = EdgeWeightLoader.load(network, edges, "edge_weight");
+		assertEquals(edges.size(), loader.getMissingCount());
+	}
+}
@@ -0,0 +1,143 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit Test class for the IndexedDaryHeap */
+public class IndexedDaryHeapTest {
+
+	/** the number of possible keys of the test heaps */
+	private static final int CAPACITY = 500;
+
+	/** random number generator with a fixed seed, so every run tests the same heaps */
+	private Random random;
+
+	/**
+	 * Creates the random number generator
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(17);
+	}
+
+	/**
+	 * Test: every arity polls the keys in order of their priorities, including
+	 * keys of equal priority
+	 */
+	@Test
+	public void testPollOrder() {
+		for (int arity = 2; arity <= 8; arity++) {
+			IndexedDaryHeap heap = new IndexedDaryHeap(CAPACITY, arity);
+			double[] priorities = new double[CAPACITY];
+			for (int key = 0; key < CAPACITY; key++) {
+				priorities[key] = random.nextInt(100);
+				heap.insert(key, priorities[key]);
+			}
+
+			assertPollsInOrder("arity " + arity, heap, priorities, CAPACITY);
+		}
+	}
+
+	/**
+	 * Test: lowering the priorities of keys moves them ahead of the keys they
+	 * now precede, insertOrDecrease ignores higher priorities, and raising a
+	 * priority is refused
+	 */
+	@Test
+	public void testDecreaseKey() {
+		IndexedDaryHeap heap = new IndexedDaryHeap(CAPACITY);
+		double[] priorities = new double[CAPACITY];
+		for (int key = 0; key < CAPACITY; key++) {
+			priorities[key] = 100 + random.nextDouble() * 100;
+			heap.insert(key, priorities[key]);
+		}
+
+		for (int i = 0; i < CAPACITY; i++) {
+			int key = random.nextInt(CAPACITY);
+			double priority = random.nextDouble() * 200;
+
+			boolean lowered = priority < priorities[key];
+			assertEquals("key " + key, lowered, heap.insertOrDecrease(key, priority));
+			if (lowered)
+				priorities[key] = priority;
+			assertEquals("key " + key, priorities[key], heap.getPriority(key), 0);
+		}
+
+		int key = heap.peek();
+		heap.decreaseKey(key, priorities[key] - 1);
+		priorities[key]--;
+		assertEquals(key, heap.peek());
+
+		try {
+			heap.decreaseKey(key, priorities[key] + 1);
+			fail("raised the priority of key " + key);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		assertPollsInOrder("decreased", heap, priorities, CAPACITY);
+	}
+
+	/**
+	 * Test: a cleared heap holds none of its former keys, and can be filled and
+	 * polled again, as the searches reuse their heaps
+	 */
+	@Test
+	public void testClearReuse() {
+		IndexedDaryHeap heap = new IndexedDaryHeap(CAPACITY);
+		double[] priorities = new double[CAPACITY];
+
+		for (int run = 0; run < 5; run++) {
+			// leaves some keys in the heap before clearing it
+			int count = 1 + random.nextInt(CAPACITY);
+			for (int key = 0; key < count; key++) {
+				priorities[key] = random.nextDouble();
+				heap.insert(key, priorities[key]);
+			}
+			for (int i = 0; i < count / 2; i++)
+				heap.poll();
+
+			heap.clear();
+			assertTrue("run " + run, heap.isEmpty());
+			for (int key = 0; key < CAPACITY; key++)
+				assertFalse("run " + run + " key " + key, heap.contains(key));
+
+			for (int key = 0; key < count; key++) {
+				priorities[key] = random.nextDouble();
+				heap.insert(key, priorities[key]);
+			}
+
+			assertPollsInOrder("run " + run, heap, priorities, count);
+		}
+	}
+
+	/**
+	 * Polls every key of a heap and checks that the keys come out in order of
+	 * their priorities
+	 * @param message    the message of a failed check
+	 * @param heap       the heap holding the keys [0, count)
+	 * @param priorities the priority of each key
+	 * @param count      the number of keys in the heap
+	 */
+	private void assertPollsInOrder(String message, IndexedDaryHeap heap, double[] priorities, int count) {
+		double[] expected = Arrays.copyOf(priorities, count);
+		Arrays.sort(expected);
+
+		boolean[] polled = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			assertEquals(message, count - i, heap.size());
+			int key = heap.poll();
+			assertFalse(message + " key " + key, polled[key]);
+			assertFalse(message + " key " + key, heap.contains(key));
+			polled[key] = true;
+			assertEquals(message + " poll " + i, expected[i], priorities[key], 0);
+		}
+
+		assertTrue(message, heap.isEmpty());
+	}
+}
@@ -0,0 +1,147 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit Test class for the LandmarkIndex */
+public class LandmarkIndexTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODE_COUNT = 200;
+	/** the number of edges of the test network */
+	private static final int EDGE_COUNT = 800;
+
+	/** random number generator with a fixed seed, so every run tests the same networks */
+	private Random random;
+	/** the nodes of the test network */
+	private List<CyNode> nodes;
+	/** the position of the source node of each edge */
+	private int[] edgeSources;
+	/** the position of the target node of each edge */
+	private int[] edgeTargets;
+	/** the weight of each edge */
+	private double[] weights;
+
+	/**
+	 * Creates a random network with positive edge weights
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(13);
+
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+		nodes = new ArrayList<CyNode>();
+		for (int i = 0; i < NODE_COUNT; i++)
+			nodes.add(network.addNode());
+
+		edgeSources = new int[EDGE_COUNT];
+		edgeTargets = new int[EDGE_COUNT];
+		weights = new double[EDGE_COUNT];
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			edgeSources[e] = random.nextInt(NODE_COUNT);
+			edgeTargets[e] = random.nextInt(NODE_COUNT);
+			weights[e] = 0.05 + random.nextDouble() * 2;
+		}
+	}
+
+	/**
+	 * Test: the bounds to the super target never exceed the distances of the reverse
+	 * Dijkstra search, and only the nodes that can't reach a target are bounded by INFINITY
+	 */
+	@Test
+	public void testBoundsAreAdmissible() {
+		LandmarkIndex index = LandmarkIndex.build(
+		        new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, null, null),
+		        LandmarkIndex.DEFAULT_LANDMARK_COUNT);
+		assertEquals(LandmarkIndex.DEFAULT_LANDMARK_COUNT, index.landmarkCount());
+
+		for (int run = 0; run < 20; run++) {
+			GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights,
+			        randomNodes(3), randomNodes(1 + random.nextInt(5)));
+			int superTarget = graph.getSuperTargetId();
+
+			double[] bounds = index.lowerBounds(graph, superTarget);
+			double[] distances = Algorithms.reverseSingleSourceDijkstra(graph, superTarget);
+			assertAdmissible(bounds, distances);
+		}
+	}
+
+	/**
+	 * Test: the bounds of an index built without the hidden edges of a run stay
+	 * lower bounds of the distances of the searches that skip the hidden edges,
+	 * whatever weight the run gives the hidden edges
+	 */
+	@Test
+	public void testBoundsIgnoreHiddenEdges() {
+		LandmarkIndex index = LandmarkIndex.build(
+		        new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, null, null),
+		        LandmarkIndex.DEFAULT_LANDMARK_COUNT);
+
+		for (int run = 0; run < 20; run++) {
+			List<CyNode> sources = randomNodes(3);
+			List<CyNode> targets = randomNodes(1 + random.nextInt(5));
+
+			// hides the edges into the sources and out of the targets, and gives
+			// them a weight that is not the weight the index was built on
+			BitSet hidden = new BitSet(EDGE_COUNT);
+			double[] runWeights = weights.clone();
+			for (int e = 0; e < EDGE_COUNT; e++) {
+				if (sources.contains(nodes.get(edgeTargets[e])) || targets.contains(nodes.get(edgeSources[e]))) {
+					hidden.set(e);
+					runWeights[e] = random.nextDouble() / 100;
+				}
+			}
+
+			GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, runWeights, sources, targets);
+			KSPContext context = new KSPContext(graph, new HashMap<CyNode, String>(), hidden);
+			int superTarget = graph.getSuperTargetId();
+
+			double[] bounds = index.lowerBounds(graph, superTarget);
+			double[] distances = Algorithms.reverseSingleSourceDijkstraTree(context, superTarget).getDistances();
+			assertAdmissible(bounds, distances);
+		}
+	}
+
+	/**
+	 * Checks that every bound is at most the distance of its node, up to rounding
+	 * @param bounds    the lower bounds of the index
+	 * @param distances the exact distances
+	 */
+	private void assertAdmissible(double[] bounds, double[] distances) {
+		assertNotNull(bounds);
+		for (int v = 0; v < distances.length; v++) {
+			if (Algorithms.isInf(bounds[v]))
+				assertTrue("node " + v + " reaches a target", Algorithms.isInf(distances[v]));
+			else
+				assertTrue("bound of node " + v, bounds[v] <= distances[v] + 1e-9);
+		}
+	}
+
+	/**
+	 * Picks distinct random nodes of the test network
+	 * @param count the number of nodes
+	 * @return the nodes
+	 */
+	private List<CyNode> randomNodes(int count) {
+		List<CyNode> picked = new ArrayList<CyNode>();
+		while (picked.size() < count) {
+			CyNode node = nodes.get(random.nextInt(NODE_COUNT));
+			if (!picked.contains(node))
+				picked.add(node);
+		}
+
+		return picked;
+	}
+}
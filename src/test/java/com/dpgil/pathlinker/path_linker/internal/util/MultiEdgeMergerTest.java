@@ -0,0 +1,121 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit Test class for the MultiEdgeMerger */
+public class MultiEdgeMergerTest {
+
+	/** the number of nodes of the test networks, few enough for many parallel edges */
+	private static final int NODE_COUNT = 15;
+	/** the number of edges of the test networks */
+	private static final int EDGE_COUNT = 400;
+
+	/** random number generator with a fixed seed, so every run tests the same networks */
+	private Random random;
+
+	/**
+	 * Creates the random number generator
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(17);
+	}
+
+	/**
+	 * Test: merging the edges of a multigraph keyed by packed node ids gives the
+	 * same edges, in the same order and with the same average weights, as the
+	 * former merge keyed by "source-target" strings with a list of weights per
+	 * edge, whether the network is directed, undirected, or mixed
+	 */
+	@Test
+	public void testMatchesListAveraging() {
+		for (int run = 0; run < 15; run++) {
+			// directed, undirected, and networks with both kinds of edges
+			int mode = run % 3;
+
+			int[] sources = new int[EDGE_COUNT];
+			int[] targets = new int[EDGE_COUNT];
+			double[] weights = new double[EDGE_COUNT];
+			boolean[] undirected = new boolean[EDGE_COUNT];
+			for (int e = 0; e < EDGE_COUNT; e++) {
+				sources[e] = random.nextInt(NODE_COUNT);
+				targets[e] = random.nextInt(NODE_COUNT);
+				weights[e] = random.nextDouble() * 10;
+				undirected[e] = mode == 1 || (mode == 2 && random.nextBoolean());
+			}
+
+			MultiEdgeMerger merger = new MultiEdgeMerger(EDGE_COUNT * 2);
+			List<String> keys = new ArrayList<String>();
+			Map<String, List<Double>> multiWeights = new HashMap<String, List<Double>>();
+			for (int e = 0; e < EDGE_COUNT; e++) {
+				merger.addEdge(sources[e], targets[e], weights[e]);
+				addListEdge(keys, multiWeights, sources[e], targets[e], weights[e]);
+				if (undirected[e]) {
+					merger.addEdge(targets[e], sources[e], weights[e]);
+					addListEdge(keys, multiWeights, targets[e], sources[e], weights[e]);
+				}
+			}
+
+			int[] edgeSources = merger.getEdgeSources();
+			int[] edgeTargets = merger.getEdgeTargets();
+			double[] averageWeights = merger.getAverageWeights();
+
+			assertEquals("run " + run, keys.size(), merger.edgeCount());
+			assertTrue("run " + run + " has multi-edges", keys.size() < EDGE_COUNT);
+			for (int edge = 0; edge < keys.size(); edge++) {
+				String key = keys.get(edge);
+				assertEquals("run " + run + " edge " + edge, key, edgeSources[edge] + "-" + edgeTargets[edge]);
+				assertEquals("run " + run + " edge " + key, average(multiWeights.get(key)), averageWeights[edge], 0);
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge as the former merge did, keeping every weight of a
+	 * source-target pair in a list
+	 * @param keys         the "source-target" key of each merged edge, in the order they were first added
+	 * @param multiWeights the weights of the edges of each key
+	 * @param source       the node id of the source
+	 * @param target       the node id of the target
+	 * @param weight       the weight of the edge
+	 */
+	private void addListEdge(List<String> keys, Map<String, List<Double>> multiWeights, int source, int target,
+	        double weight) {
+		String key = source + "-" + target;
+		List<Double> edgeWeights = multiWeights.get(key);
+		if (edgeWeights == null) {
+			edgeWeights = new ArrayList<Double>();
+			multiWeights.put(key, edgeWeights);
+			keys.add(key);
+		}
+
+		edgeWeights.add(weight);
+	}
+
+	/**
+	 * Averages the weights of an edge as the former merge did
+	 * @param weights the weights of the edges merged into the edge
+	 * @return the average weight
+	 */
+	private double average(List<Double> weights) {
+		Double edgeWeight = weights.get(0);
+		if (weights.size() > 1) {
+			Double sum = 0.0;
+			for (Double w : weights)
+				sum += w;
+
+			edgeWeight = sum / weights.size();
+		}
+
+		return edgeWeight;
+	}
+}
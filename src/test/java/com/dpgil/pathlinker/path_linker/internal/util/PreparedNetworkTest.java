@@ -0,0 +1,250 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.ColumnDeletedEvent;
+import org.cytoscape.model.events.ColumnNameChangedEvent;
+import org.cytoscape.model.events.RemovedEdgesEvent;
+import org.cytoscape.model.events.RemovedNodesEvent;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dpgil.pathlinker.path_linker.internal.event.PathLinkerSnapshotCacheListener;
+
+/** JUnit Test class for the PreparedNetwork cache */
+public class PreparedNetworkTest {
+
+	/** the network the prepared networks are prepared from */
+	private CyNetwork network;
+	/** the nodes of the network */
+	private List<CyNode> nodes;
+	/** the name of each node of the network */
+	private Map<CyNode, String> cyNodeToId;
+	/** the cache key of the network with its weight settings */
+	private Object key;
+
+	/**
+	 * Creates a network of three nodes with an empty cache
+	 */
+	@Before
+	public void setUp() {
+		PreparedNetwork.clearCache();
+
+		network = new NetworkTestSupport().getNetwork();
+		nodes = new ArrayList<CyNode>();
+		cyNodeToId = new HashMap<CyNode, String>();
+		for (int i = 0; i < 3; i++) {
+			CyNode node = network.addNode();
+			nodes.add(node);
+			cyNodeToId.put(node, i == 2 ? "A" : "N" + i);
+		}
+		network.addEdge(nodes.get(0), nodes.get(1), true);
+
+		key = PreparedNetwork.cacheKey(network, EdgeWeightType.ADDITIVE, "edge_weight", 0, false);
+	}
+
+	/**
+	 * Test: a network prepared with no invalidation since its preparation started is
+	 * cached and found again, with its nodes by name
+	 */
+	@Test
+	public void testCacheHit() {
+		long startedAt = PreparedNetwork.startPreparation("edge_weight");
+		assertTrue(PreparedNetwork.cache(key, prepare(), startedAt));
+
+		PreparedNetwork cached = PreparedNetwork.getCached(key, network);
+		assertNotNull(cached);
+		assertSame(nodes.get(2), cached.getIdToCyNode().get("A"));
+		assertTrue(PreparedNetwork.getWatchedColumns().contains("edge_weight"));
+	}
+
+	/**
+	 * Test: a network whose nodes, name column or weight column changed while it was
+	 * prepared is not cached, while a change of another column doesn't matter
+	 */
+	@Test
+	public void testInvalidatedDuringPreparation() {
+		long startedAt = PreparedNetwork.startPreparation("edge_weight");
+		PreparedNetwork.invalidateNetwork(network.getSUID());
+		assertFalse(PreparedNetwork.cache(key, prepare(), startedAt));
+		assertNull(PreparedNetwork.getCached(key, network));
+
+		startedAt = PreparedNetwork.startPreparation("edge_weight");
+		PreparedNetwork.invalidateColumn("edge_weight");
+		assertFalse(PreparedNetwork.cache(key, prepare(), startedAt));
+
+		startedAt = PreparedNetwork.startPreparation("edge_weight");
+		PreparedNetwork.invalidateColumn(CyNetwork.NAME);
+		assertFalse(PreparedNetwork.cache(key, prepare(), startedAt));
+
+		startedAt = PreparedNetwork.startPreparation("edge_weight");
+		PreparedNetwork.invalidateColumn("other_weight");
+		assertTrue(PreparedNetwork.cache(key, prepare(), startedAt));
+		assertNotNull(PreparedNetwork.getCached(key, network));
+	}
+
+	/**
+	 * Test: invalidating a cached network's weight column or name column removes it,
+	 * and a network whose edge count changed is never returned
+	 */
+	@Test
+	public void testInvalidateCached() {
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		PreparedNetwork.invalidateColumn("edge_weight");
+		assertNull(PreparedNetwork.getCached(key, network));
+
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		PreparedNetwork.invalidateColumn(CyNetwork.NAME);
+		assertNull(PreparedNetwork.getCached(key, network));
+
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		network.addEdge(nodes.get(1), nodes.get(2), true);
+		assertNull(PreparedNetwork.getCached(key, network));
+	}
+
+	/**
+	 * Test: the counters count the lookups that found a network and those that didn't
+	 */
+	@Test
+	public void testHitAndMissCounters() {
+		long hits = PreparedNetwork.getHitCount();
+		long misses = PreparedNetwork.getMissCount();
+
+		assertNull(PreparedNetwork.getCached(key, network));
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		assertNotNull(PreparedNetwork.getCached(key, network));
+		assertNotNull(PreparedNetwork.getCached(key, network));
+
+		assertEquals(2, PreparedNetwork.getHitCount() - hits);
+		assertEquals(1, PreparedNetwork.getMissCount() - misses);
+	}
+
+	/**
+	 * Test: the cache size set by the Cytoscape properties bounds the cache, evicting
+	 * the least recently used network, and invalid sizes are ignored
+	 */
+	@Test
+	public void testConfigureCacheSize() {
+		try {
+			Properties properties = new Properties();
+			assertFalse(PreparedNetwork.configureCacheSize(properties));
+			properties.setProperty(PreparedNetwork.CACHE_SIZE_PROPERTY, "many");
+			assertFalse(PreparedNetwork.configureCacheSize(properties));
+			properties.setProperty(PreparedNetwork.CACHE_SIZE_PROPERTY, "-1");
+			assertFalse(PreparedNetwork.configureCacheSize(properties));
+			assertEquals(PreparedNetwork.DEFAULT_CACHE_SIZE, PreparedNetwork.getCacheSize());
+
+			Object undirectedKey = PreparedNetwork.cacheKey(network, EdgeWeightType.ADDITIVE, "edge_weight", 0, true);
+			PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+			PreparedNetwork.cache(undirectedKey, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+			assertNotNull(PreparedNetwork.getCached(key, network));
+
+			// keeps the network used last
+			properties.setProperty(PreparedNetwork.CACHE_SIZE_PROPERTY, " 1 ");
+			assertTrue(PreparedNetwork.configureCacheSize(properties));
+			assertEquals(1, PreparedNetwork.getCacheSize());
+			assertNotNull(PreparedNetwork.getCached(key, network));
+			assertNull(PreparedNetwork.getCached(undirectedKey, network));
+
+			PreparedNetwork.cache(undirectedKey, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+			assertNull(PreparedNetwork.getCached(key, network));
+		} finally {
+			PreparedNetwork.setCacheSize(PreparedNetwork.DEFAULT_CACHE_SIZE);
+		}
+	}
+
+	/**
+	 * Test: the snapshot cache listener removes the cached networks of a network when
+	 * its nodes or edges change, and those using a column when the column's values
+	 * are set, or the column is deleted or renamed, while the events of another
+	 * network or column keep them
+	 */
+	@Test
+	public void testSnapshotCacheListener() {
+		PathLinkerSnapshotCacheListener listener = new PathLinkerSnapshotCacheListener();
+		CyNetwork other = new NetworkTestSupport().getNetwork();
+		CyTable edgeTable = network.getDefaultEdgeTable();
+
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		listener.handleEvent(new AddedNodesEvent(other, Collections.singletonList(other.addNode())));
+		listener.handleEvent(new RemovedEdgesEvent(other));
+		assertRemoved(false);
+
+		listener.handleEvent(new AddedNodesEvent(network, Collections.singletonList(nodes.get(2))));
+		assertRemoved(true);
+		listener.handleEvent(new RemovedNodesEvent(network));
+		assertRemoved(true);
+		listener.handleEvent(new AddedEdgesEvent(network, network.getEdgeList()));
+		assertRemoved(true);
+		listener.handleEvent(new RemovedEdgesEvent(network));
+		assertRemoved(true);
+
+		listener.handleEvent(rowsSet(edgeTable, "other_weight"));
+		listener.handleEvent(new ColumnDeletedEvent(edgeTable, "other_weight"));
+		listener.handleEvent(new ColumnNameChangedEvent(edgeTable, "other_weight", "edge_weight"));
+		assertRemoved(false);
+
+		listener.handleEvent(rowsSet(edgeTable, "edge_weight"));
+		assertRemoved(true);
+		listener.handleEvent(rowsSet(network.getDefaultNodeTable(), CyNetwork.NAME));
+		assertRemoved(true);
+		listener.handleEvent(new ColumnDeletedEvent(edgeTable, "edge_weight"));
+		assertRemoved(true);
+		listener.handleEvent(new ColumnNameChangedEvent(edgeTable, "edge_weight", "renamed_weight"));
+		assertNull(PreparedNetwork.getCached(key, network));
+	}
+
+	/**
+	 * Prepares the network with a single edge
+	 * @return the prepared network
+	 */
+	private PreparedNetwork prepare() {
+		Map<CyNode, Integer> nodeIndices = new HashMap<CyNode, Integer>();
+		for (int i = 0; i < nodes.size(); i++)
+			nodeIndices.put(nodes.get(i), i);
+
+		return new PreparedNetwork(network, "edge_weight", nodes, nodeIndices, cyNodeToId,
+		        new int[] {0}, new int[] {1}, new double[] {1});
+	}
+
+	/**
+	 * Checks whether the events since the last check removed the cached network, and
+	 * caches it again if they did
+	 * @param removed whether the events should have removed the network
+	 */
+	private void assertRemoved(boolean removed) {
+		if (removed) {
+			assertNull(PreparedNetwork.getCached(key, network));
+			PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		}
+
+		assertNotNull(PreparedNetwork.getCached(key, network));
+	}
+
+	/**
+	 * Creates the event of setting a column of the first row of a table
+	 * @param table      the table
+	 * @param columnName the name of the column
+	 * @return the event
+	 */
+	private RowsSetEvent rowsSet(CyTable table, String columnName) {
+		RowSetRecord record = new RowSetRecord(table.getAllRows().get(0), columnName, 2.0, 2.0);
+		return new RowsSetEvent(table, Collections.singletonList(record));
+	}
+}
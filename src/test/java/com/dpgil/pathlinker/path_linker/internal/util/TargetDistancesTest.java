@@ -0,0 +1,220 @@
+package com.dpgil.pathlinker.path_linker.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit Test class for the TargetDistances shared by the runs on a prepared network */
+public class TargetDistancesTest {
+
+	/** the number of nodes of the test network */
+	private static final int NODE_COUNT = 100;
+	/** the number of edges of the test network */
+	private static final int EDGE_COUNT = 400;
+
+	/** random number generator with a fixed seed, so every run tests the same network */
+	private Random random;
+	/** the network the prepared network is prepared from */
+	private CyNetwork network;
+	/** the nodes of the test network */
+	private List<CyNode> nodes;
+	/** the position of each node in the node list */
+	private Map<CyNode, Integer> nodeIndices;
+	/** the name of each node of the test network */
+	private Map<CyNode, String> cyNodeToId;
+	/** the position of the source node of each edge */
+	private int[] edgeSources;
+	/** the position of the target node of each edge */
+	private int[] edgeTargets;
+	/** the weight of each edge */
+	private double[] weights;
+	/** the cache key of the network with its weight settings */
+	private Object key;
+
+	/**
+	 * Creates a random network with an empty cache
+	 */
+	@Before
+	public void setUp() {
+		PreparedNetwork.clearCache();
+		random = new Random(17);
+
+		network = new NetworkTestSupport().getNetwork();
+		nodes = new ArrayList<CyNode>();
+		nodeIndices = new HashMap<CyNode, Integer>();
+		cyNodeToId = new HashMap<CyNode, String>();
+		for (int i = 0; i < NODE_COUNT; i++) {
+			CyNode node = network.addNode();
+			nodes.add(node);
+			nodeIndices.put(node, i);
+			cyNodeToId.put(node, "N" + i);
+		}
+
+		edgeSources = new int[EDGE_COUNT];
+		edgeTargets = new int[EDGE_COUNT];
+		weights = new double[EDGE_COUNT];
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			edgeSources[e] = random.nextInt(NODE_COUNT);
+			edgeTargets[e] = random.nextInt(NODE_COUNT);
+			weights[e] = 0.05 + random.nextDouble();
+			network.addEdge(nodes.get(edgeSources[e]), nodes.get(edgeTargets[e]), true);
+		}
+
+		key = PreparedNetwork.cacheKey(network, EdgeWeightType.ADDITIVE, "edge_weight", 1, false);
+	}
+
+	/**
+	 * Test: runs on the same targets share the distances whatever their sources, only
+	 * the first of them computes them, and every run gets the distances a reverse
+	 * Dijkstra search of its own snapshot finds, which bound the distances of the
+	 * searches that skip the hidden edges of the run
+	 */
+	@Test
+	public void testHitWithOtherSources() {
+		PreparedNetwork prepared = prepare();
+		List<CyNode> targets = randomNodes(3);
+
+		long hits = TargetDistances.getHitCount();
+		long misses = TargetDistances.getMissCount();
+		for (int run = 0; run < 5; run++) {
+			TargetDistances distances = prepared.getTargetDistances(targetSet(targets));
+			assertSame("run " + run, prepared.getTargetDistances(targetSet(targets)), distances);
+
+			assertDistances("run " + run, distances, randomNodes(1 + random.nextInt(4)), targets);
+		}
+
+		assertEquals(1, TargetDistances.getMissCount() - misses);
+		assertEquals(4, TargetDistances.getHitCount() - hits);
+	}
+
+	/**
+	 * Test: runs on other targets compute their own distances
+	 */
+	@Test
+	public void testMiss() {
+		PreparedNetwork prepared = prepare();
+		List<CyNode> targets = randomNodes(3);
+		List<CyNode> sources = randomNodes(2);
+
+		TargetDistances distances = prepared.getTargetDistances(targetSet(targets));
+		assertDistances("first run", distances, sources, targets);
+
+		List<CyNode> otherTargets = randomNodes(3);
+		TargetDistances otherTargetDistances = prepared.getTargetDistances(targetSet(otherTargets));
+		assertNotSame(distances, otherTargetDistances);
+
+		long misses = TargetDistances.getMissCount();
+		assertDistances("other targets", otherTargetDistances, sources, otherTargets);
+		assertEquals(1, TargetDistances.getMissCount() - misses);
+	}
+
+	/**
+	 * Test: the distances are dropped along with their prepared network when the
+	 * weight column of the network changes, so the next run computes them again
+	 */
+	@Test
+	public void testInvalidation() {
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		List<CyNode> targets = randomNodes(3);
+
+		PreparedNetwork prepared = PreparedNetwork.getCached(key, network);
+		TargetDistances distances = prepared.getTargetDistances(targetSet(targets));
+		assertDistances("before", distances, randomNodes(2), targets);
+
+		PreparedNetwork.invalidateColumn("edge_weight");
+		assertNull(PreparedNetwork.getCached(key, network));
+
+		// the run after the change prepares the network again
+		for (int e = 0; e < EDGE_COUNT; e++)
+			weights[e] += random.nextDouble();
+		PreparedNetwork.cache(key, prepare(), PreparedNetwork.startPreparation("edge_weight"));
+		prepared = PreparedNetwork.getCached(key, network);
+		TargetDistances changed = prepared.getTargetDistances(targetSet(targets));
+		assertNotSame(distances, changed);
+
+		long misses = TargetDistances.getMissCount();
+		assertDistances("after", changed, randomNodes(2), targets);
+		assertEquals(1, TargetDistances.getMissCount() - misses);
+	}
+
+	/**
+	 * Checks the distances a run gets against a reverse Dijkstra search of its snapshot,
+	 * and checks that they are at most the distances of the searches of the run, which
+	 * skip the edges into the sources and out of the targets
+	 * @param message   the message of a failed check
+	 * @param distances the distances shared by the runs
+	 * @param sources   the sources of the run
+	 * @param targets   the targets of the run
+	 */
+	private void assertDistances(String message, TargetDistances distances, List<CyNode> sources,
+	        List<CyNode> targets) {
+		BitSet hidden = new BitSet(EDGE_COUNT);
+		for (int e = 0; e < EDGE_COUNT; e++) {
+			if (sources.contains(nodes.get(edgeTargets[e])) || targets.contains(nodes.get(edgeSources[e])))
+				hidden.set(e);
+		}
+
+		GraphSnapshot graph = new GraphSnapshot(nodes, edgeSources, edgeTargets, weights, sources, targets);
+		int superTarget = graph.getSuperTargetId();
+		double[] expected = Algorithms.reverseSingleSourceDijkstra(graph, superTarget);
+		double[] actual = distances.getDistances(graph, superTarget);
+		double[] searched = Algorithms.reverseSingleSourceDijkstraTree(
+		        new KSPContext(graph, cyNodeToId, hidden), superTarget).getDistances();
+
+		assertEquals(message, expected.length, actual.length);
+		for (int v = 0; v < expected.length; v++) {
+			assertEquals(message + " node " + v, expected[v], actual[v], 1e-9);
+			assertTrue(message + " node " + v, actual[v] <= searched[v] + 1e-9);
+		}
+	}
+
+	/**
+	 * Prepares the test network with its current weights
+	 * @return the prepared network
+	 */
+	private PreparedNetwork prepare() {
+		return new PreparedNetwork(network, "edge_weight", nodes, nodeIndices, cyNodeToId,
+		        edgeSources, edgeTargets, weights.clone());
+	}
+
+	/**
+	 * Converts a list of targets to the set of their positions
+	 * @param targets the targets
+	 * @return the positions of the targets in the node list
+	 */
+	private BitSet targetSet(List<CyNode> targets) {
+		BitSet targetSet = new BitSet(NODE_COUNT);
+		for (CyNode target : targets)
+			targetSet.set(nodeIndices.get(target));
+
+		return targetSet;
+	}
+
+	/**
+	 * Picks distinct random nodes of the test network
+	 * @param count the number of nodes
+	 * @return the nodes
+	 */
+	private List<CyNode> randomNodes(int count) {
+		List<CyNode> picked = new ArrayList<CyNode>();
+		while (picked.size() < count) {
+			CyNode node = nodes.get(random.nextInt(NODE_COUNT));
+			if (!picked.contains(node))
+				picked.add(node);
+		}
+
+		return picked;
+	}
+}